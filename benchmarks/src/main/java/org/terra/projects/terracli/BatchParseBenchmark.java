@@ -0,0 +1,78 @@
+package org.terra.projects.terracli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link DefaultParser#parseAll} scales with the number of
+ * threads of its pool, over a batch mixing every shape of
+ * {@link DefaultParserBenchmark} and some failing argument lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchParseBenchmark
+{
+    private static final String[] SHAPES = {"shortFlags", "clusters", "longPrefixes", "properties", "passthrough"};
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"100000"})
+    public int size;
+
+    private final DefaultParser parser = new DefaultParser();
+
+    private final Options options = DefaultParserBenchmark.createOptions();
+
+    private List<String[]> arguments;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        arguments = new ArrayList<String[]>(size);
+        for (int i = 0; i < size; i++)
+        {
+            // one argument list out of 20 fails on an unknown option
+            arguments.add(random.nextInt(20) == 0
+                    ? new String[] {"-a", "--unknown"}
+                    : DefaultParserBenchmark.createArguments(SHAPES[random.nextInt(SHAPES.length)]));
+        }
+        pool = new ForkJoinPool(threads);
+        options.compile();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<ParseResult> parseAll()
+    {
+        return parser.parseAll(options, arguments, pool);
+    }
+}
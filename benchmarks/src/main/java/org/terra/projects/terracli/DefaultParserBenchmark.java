@@ -0,0 +1,148 @@
+package org.terra.projects.terracli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link DefaultParser#parse} over the command
+ * line shapes it has dedicated code paths for. Run with <code>-prof gc</code>
+ * to report the allocation per parse as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DefaultParserBenchmark
+{
+    /** the number of options registered in the large table */
+    private static final int LARGE_TABLE_SIZE = 5000;
+
+    @Param({"shortFlags", "clusters", "longPrefixes", "properties", "passthrough", "largeTable"})
+    public String shape;
+
+    private final DefaultParser parser = new DefaultParser();
+
+    private Options options;
+
+    private String[] arguments;
+
+    @Setup
+    public void setup()
+    {
+        options = "largeTable".equals(shape) ? createLargeOptions() : createOptions();
+        arguments = createArguments(shape);
+
+        // build the compiled table outside of the measurement
+        options.compile();
+    }
+
+    static Options createOptions()
+    {
+        Options options = new Options();
+        for (char c = 'a'; c <= 'h'; c++)
+        {
+            options.addOption(String.valueOf(c), false, "flag " + c);
+        }
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+        options.addOption(null, "all", false, "all");
+        options.addOption(null, "block-size", false, "block size");
+        options.addOption(null, "quiet", false, "quiet");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(2);
+        property.setValueSeperator('=');
+        options.addOption(property);
+        return options;
+    }
+
+    static Options createLargeOptions()
+    {
+        Options options = createOptions();
+        for (int i = 0; i < LARGE_TABLE_SIZE; i++)
+        {
+            options.addOption(null, "option-" + i, false, "option " + i);
+        }
+        return options;
+    }
+
+    static String[] createArguments(String shape)
+    {
+        List<String> arguments = new ArrayList<String>();
+        if ("shortFlags".equals(shape))
+        {
+            for (char c = 'a'; c <= 'h'; c++)
+            {
+                arguments.add("-" + c);
+            }
+        }
+        else if ("clusters".equals(shape))
+        {
+            arguments.add("-abc");
+            arguments.add("-def");
+            arguments.add("-gh");
+            arguments.add("-hgfedcba");
+        }
+        else if ("longPrefixes".equals(shape))
+        {
+            arguments.add("--verb");
+            arguments.add("--vers");
+            arguments.add("--al");
+            arguments.add("--block");
+            arguments.add("-quiet");
+            arguments.add("--all");
+        }
+        else if ("properties".equals(shape))
+        {
+            for (int i = 0; i < 16; i++)
+            {
+                arguments.add("-Dkey" + i + "=value" + i);
+            }
+        }
+        else if ("passthrough".equals(shape))
+        {
+            arguments.add("-a");
+            arguments.add("--verbose");
+            arguments.add("--");
+            for (int i = 0; i < 16; i++)
+            {
+                arguments.add(i % 2 == 0 ? "-x" + i : "file" + i);
+            }
+        }
+        else if ("largeTable".equals(shape))
+        {
+            for (int i = 0; i < 8; i++)
+            {
+                arguments.add("--option-" + (i * LARGE_TABLE_SIZE / 8));
+            }
+            arguments.add("-a");
+            arguments.add("--verb");
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        return arguments.toArray(new String[arguments.size()]);
+    }
+
+    @Benchmark
+    public CommandLine parse() throws ParseException
+    {
+        return parser.parse(options, arguments);
+    }
+}
@@ -0,0 +1,117 @@
+package org.terra.projects.terracli;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the parser generated for a class of {@link CliOption} fields with
+ * {@link DefaultParser} filling the same fields, once with the options built
+ * for every parse, as a short-lived process does, and once with the options
+ * built up front.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratedParserBenchmark
+{
+    private static final String[] ARGUMENTS = {
+        "-v", "--count", "8", "--name=build", "-o", "out.txt", "--timeout", "2500", "-q", "input.txt"
+    };
+
+    private final DefaultParser parser = new DefaultParser();
+
+    private final Options options = createOptions();
+
+    static class Config
+    {
+        @CliOption(opt = "v", longOpt = "verbose")
+        boolean verbose;
+
+        @CliOption(opt = "q", longOpt = "quiet")
+        boolean quiet;
+
+        @CliOption(opt = "n", longOpt = "count")
+        int count;
+
+        @CliOption(longOpt = "timeout")
+        long timeout;
+
+        @CliOption(required = true)
+        String name;
+
+        @CliOption(opt = "o", longOpt = "output")
+        File output;
+
+        List<String> args;
+    }
+
+    static Options createOptions()
+    {
+        Options options = new Options();
+        options.addOption("v", "verbose", false, "verbose");
+        options.addOption("q", "quiet", false, "quiet");
+        options.addOption(valued(new Option("n", "count", false, "count"), int.class));
+        options.addOption(valued(new Option(null, "timeout", false, "timeout"), long.class));
+        options.addOption(valued(new Option("o", "output", false, "output"), File.class));
+
+        // required before it is added, for Options to check it as the generated parser does
+        Option name = valued(new Option(null, "name", false, "name"), String.class);
+        name.setRequired(true);
+        options.addOption(name);
+        return options;
+    }
+
+    private static Option valued(Option option, Class<?> type)
+    {
+        option.setArgs(Option.UNLIMITED_VALUES);
+        option.setType(type);
+        return option;
+    }
+
+    @Benchmark
+    public Config generated() throws ParseException
+    {
+        Config config = new Config();
+        config.args = GeneratedParserBenchmark_ConfigParser.parse(config, ARGUMENTS);
+        return config;
+    }
+
+    @Benchmark
+    public Config defaultParser() throws ParseException
+    {
+        return fill(parser.parse(options, ARGUMENTS));
+    }
+
+    @Benchmark
+    public Config defaultParserBuildingOptions() throws ParseException
+    {
+        return fill(parser.parse(createOptions(), ARGUMENTS));
+    }
+
+    private static Config fill(CommandLine cmd) throws ParseException
+    {
+        Config config = new Config();
+        config.verbose = cmd.hasOption("v");
+        config.quiet = cmd.hasOption("q");
+        config.count = cmd.getIntValue("n", 0);
+        config.timeout = ((Number) cmd.getParsedOptionValue("timeout")).longValue();
+        config.name = cmd.getOptionValue("name");
+        config.output = (File) cmd.getParsedOptionValue("o");
+        config.args = cmd.getArgList();
+        return config;
+    }
+}
@@ -0,0 +1,78 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the numeric token check of {@link DefaultParser} with the
+ * exception driven <code>Double.parseDouble</code> check it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberLexerBenchmark
+{
+    @Param({"options", "numbers"})
+    public String tokens;
+
+    private String[] values;
+
+    @Setup
+    public void setup()
+    {
+        if ("numbers".equals(tokens))
+        {
+            values = new String[] {"-1", "-2.5", "-1e10", "-0x1.8p3", "-NaN", "-Infinity", "-.5f", "-42d"};
+        }
+        else
+        {
+            values = new String[] {"-a", "-v", "--verbose", "-Dkey=value", "-Xmx512m", "--file", "-abc", "-f"};
+        }
+    }
+
+    @Benchmark
+    public void lexer(Blackhole bh)
+    {
+        for (String value : values)
+        {
+            bh.consume(NumberLexer.isNumber(value));
+        }
+    }
+
+    @Benchmark
+    public void parseDouble(Blackhole bh)
+    {
+        for (String value : values)
+        {
+            bh.consume(isNumberByException(value));
+        }
+    }
+
+    private static boolean isNumberByException(String token)
+    {
+        try
+        {
+            Double.parseDouble(token);
+            return true;
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+}
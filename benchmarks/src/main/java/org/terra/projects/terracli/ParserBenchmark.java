@@ -0,0 +1,72 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the token loop of {@link Parser}, through a
+ * subclass whose <code>flatten</code> returns the arguments unchanged. The
+ * shapes relying on prefix matching or token splitting are left to
+ * {@link DefaultParserBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark
+{
+    @Param({"shortFlags", "passthrough", "largeTable"})
+    public String shape;
+
+    private final Parser parser = new Parser()
+    {
+        @Override
+        protected String[] flatten(Options opts, String[] arguments, boolean stopAtNonOption)
+        {
+            return arguments;
+        }
+    };
+
+    private Options options;
+
+    private String[] arguments;
+
+    @Setup
+    public void setup()
+    {
+        options = "largeTable".equals(shape)
+                ? DefaultParserBenchmark.createLargeOptions()
+                : DefaultParserBenchmark.createOptions();
+
+        // the prefixes of the large table shape are spelled out, Parser only matches full names
+        arguments = DefaultParserBenchmark.createArguments(shape);
+        for (int i = 0; i < arguments.length; i++)
+        {
+            if ("--verb".equals(arguments[i]))
+            {
+                arguments[i] = "--verbose";
+            }
+        }
+
+        options.compile();
+    }
+
+    @Benchmark
+    public CommandLine parse() throws ParseException
+    {
+        return parser.parse(options, arguments);
+    }
+}
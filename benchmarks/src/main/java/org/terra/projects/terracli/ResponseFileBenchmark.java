@@ -0,0 +1,105 @@
+package org.terra.projects.terracli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the expansion of <code>@file</code> arguments by response file
+ * size. The parse runs in event mode so that nothing but the expansion
+ * itself grows with the file; with <code>-prof gc</code> the allocation per
+ * parse shows that the file is not held in memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseFileBenchmark
+{
+    /** the approximate size of the response file, in megabytes */
+    @Param({"1", "16", "64"})
+    public int megabytes;
+
+    private final DefaultParser parser = new DefaultParser(true);
+
+    private final Options options = DefaultParserBenchmark.createOptions();
+
+    private Path file;
+
+    private String[] arguments;
+
+    private final Counter counter = new Counter();
+
+    @Setup
+    public void setup() throws IOException
+    {
+        file = Files.createTempFile("arguments", ".txt");
+        long size = megabytes * 1024L * 1024L;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            long written = 0;
+            for (int i = 0; written < size; i++)
+            {
+                String line = i % 4 == 0
+                        ? "-a --verbose -Dkey" + i + "=\"value " + i + "\"\n"
+                        : "src/main/java/File" + i + ".java 'quoted argument " + i + "'\n";
+                writer.write(line);
+                written += line.length();
+            }
+        }
+        arguments = new String[] { "@" + file };
+        options.compile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long expand() throws ParseException
+    {
+        counter.count = 0;
+        parser.parseEvents(options, arguments, counter, false);
+        return counter.count;
+    }
+
+    private static final class Counter implements ParseEventHandler
+    {
+        long count;
+
+        public void handleArgument(String argument)
+        {
+            count++;
+        }
+
+        public void handleOption(int id, Option option)
+        {
+            count++;
+        }
+
+        public void handleValue(int id, String value)
+        {
+            count++;
+        }
+    }
+}
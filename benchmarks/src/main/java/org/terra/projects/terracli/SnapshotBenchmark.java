@@ -0,0 +1,83 @@
+package org.terra.projects.terracli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to obtain the compiled table of the large option set of
+ * {@link DefaultParserBenchmark}: built in code, read back with Java
+ * serialization and loaded from an {@link OptionsSnapshot} file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark
+{
+    private Path snapshot;
+
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        Options options = DefaultParserBenchmark.createLargeOptions();
+
+        snapshot = Files.createTempFile("options", ".bin");
+        OptionsSnapshot.write(options, snapshot);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(options);
+        }
+        serialized = bytes.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public CompiledOptions build()
+    {
+        return DefaultParserBenchmark.createLargeOptions().compile();
+    }
+
+    @Benchmark
+    public CompiledOptions deserialize() throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized)))
+        {
+            return ((Options) in.readObject()).compile();
+        }
+    }
+
+    @Benchmark
+    public CompiledOptions load() throws IOException
+    {
+        return OptionsSnapshot.load(snapshot).compile();
+    }
+}
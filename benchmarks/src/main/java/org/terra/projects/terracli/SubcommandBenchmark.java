@@ -0,0 +1,91 @@
+package org.terra.projects.terracli;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of building a tool with many subcommands and parsing
+ * its first command line, with every subcommand built up front against a
+ * {@link CommandTree} building the chosen one only.
+ * <p>
+ * By default the work is measured once the JIT has compiled it. The cold
+ * start of a short-lived process is measured by a single shot per fork:
+ * <code>-bm ss -wi 0 -i 1 -f 20</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubcommandBenchmark
+{
+    @Param({"300"})
+    public int subcommands;
+
+    @Param({"40"})
+    public int optionsPerSubcommand;
+
+    private final DefaultParser parser = new DefaultParser();
+
+    private final String[] arguments = {"-v", "command150", "--option-7", "-a", "file.txt"};
+
+    @Benchmark
+    public CommandLine eager() throws ParseException
+    {
+        Map<String, Options> commands = new HashMap<String, Options>();
+        for (int i = 0; i < subcommands; i++)
+        {
+            commands.put("command" + i, createOptions(i));
+        }
+        Options global = createGlobalOptions();
+
+        CommandLine cmd = parser.parse(global, arguments, true);
+        Options chosen = commands.get(cmd.getArgs()[0]);
+        return parser.parse(chosen, cmd.getArgList().subList(1, cmd.getArgList().size()).iterator(), null, false);
+    }
+
+    @Benchmark
+    public ParsedCommand lazy() throws ParseException
+    {
+        CommandTree tree = new CommandTree(SubcommandBenchmark::createGlobalOptions);
+        for (int i = 0; i < subcommands; i++)
+        {
+            final int index = i;
+            tree.addSubcommand("command" + i, () -> createOptions(index));
+        }
+
+        return tree.parse(parser, arguments);
+    }
+
+    private static Options createGlobalOptions()
+    {
+        Options options = new Options();
+        options.addOption("v", "verbose", false, "verbose");
+        options.addOption("h", "help", false, "help");
+        return options;
+    }
+
+    private Options createOptions(int command)
+    {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        for (int i = 0; i < optionsPerSubcommand; i++)
+        {
+            options.addOption(null, "option-" + i, false, "option " + i + " of command " + command);
+        }
+        return options;
+    }
+}
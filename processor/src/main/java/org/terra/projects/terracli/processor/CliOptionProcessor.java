@@ -0,0 +1,514 @@
+package org.terra.projects.terracli.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import org.terra.projects.terracli.CliOption;
+
+/**
+ * Generates a parser for every class with {@link CliOption} fields.
+ * <p>
+ * The parser of a class <code>Config</code> is the class
+ * <code>ConfigParser</code> of the same package, or
+ * <code>Outer_ConfigParser</code> for a class nested in <code>Outer</code>.
+ * Its <code>parse</code> method switches on the name of each option and
+ * assigns the field of the option with a conversion chosen here from the
+ * type of the field, so that parsing builds no option table and looks up
+ * nothing at run time.
+ */
+@SupportedAnnotationTypes("org.terra.projects.terracli.CliOption")
+public class CliOptionProcessor extends AbstractProcessor
+{
+    /** the inline conversion of each primitive type, applied to <code>name</code> and <code>value</code> */
+    private static final Map<TypeKind, String> CONVERSIONS = new HashMap<TypeKind, String>();
+
+    static
+    {
+        CONVERSIONS.put(TypeKind.BYTE, "Byte.parseByte(value)");
+        CONVERSIONS.put(TypeKind.SHORT, "Short.parseShort(value)");
+        CONVERSIONS.put(TypeKind.INT, "Integer.parseInt(value)");
+        CONVERSIONS.put(TypeKind.LONG, "Long.parseLong(value)");
+        CONVERSIONS.put(TypeKind.FLOAT, "Float.parseFloat(value)");
+        CONVERSIONS.put(TypeKind.DOUBLE, "Double.parseDouble(value)");
+        CONVERSIONS.put(TypeKind.CHAR, "toChar(name, value)");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        // the annotated fields of each class, in declaration order
+        Map<TypeElement, List<VariableElement>> fields = new LinkedHashMap<TypeElement, List<VariableElement>>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(CliOption.class))
+        {
+            TypeElement type = (TypeElement) element.getEnclosingElement();
+            if (!fields.containsKey(type))
+            {
+                fields.put(type, new ArrayList<VariableElement>());
+            }
+            fields.get(type).add((VariableElement) element);
+        }
+
+        for (Map.Entry<TypeElement, List<VariableElement>> entry : fields.entrySet())
+        {
+            List<OptionField> options = validate(entry.getKey(), entry.getValue());
+            if (options != null)
+            {
+                generate(entry.getKey(), options);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the annotated fields of a class and returns their options, or
+     * <code>null</code> after reporting the errors found.
+     */
+    private List<OptionField> validate(TypeElement type, List<VariableElement> fields)
+    {
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getKind() != ElementKind.CLASS)
+        {
+            error(type, "@CliOption fields must belong to a class that is not private");
+            valid = false;
+        }
+
+        List<OptionField> options = new ArrayList<OptionField>();
+        Map<String, VariableElement> names = new HashMap<String, VariableElement>();
+        for (VariableElement field : fields)
+        {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+                || modifiers.contains(Modifier.FINAL))
+            {
+                error(field, "@CliOption fields must be neither private, static nor final");
+                valid = false;
+            }
+
+            TypeMirror fieldType = field.asType();
+            if (!fieldType.getKind().isPrimitive() && fieldType.getKind() != TypeKind.DECLARED)
+            {
+                error(field, "Unsupported type of @CliOption field: " + fieldType);
+                valid = false;
+            }
+
+            OptionField option = new OptionField(field);
+            for (String name : option.getNames())
+            {
+                if (name.isEmpty() || name.startsWith("-") || name.indexOf('=') != -1 || !isPrintable(name))
+                {
+                    error(field, "Illegal option name: '" + name + "'");
+                    valid = false;
+                }
+                else if (names.containsKey(name))
+                {
+                    error(field, "Duplicate option name '" + name + "', also used by "
+                                 + names.get(name).getSimpleName());
+                    valid = false;
+                }
+                else
+                {
+                    names.put(name, field);
+                }
+            }
+            options.add(option);
+        }
+
+        return valid ? options : null;
+    }
+
+    private static boolean isPrintable(String name)
+    {
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (c <= ' ' || c == '"' || c == '\\' || Character.isISOControl(c))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type, List<OptionField> options)
+    {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String targetName = type.getQualifiedName().toString();
+        String parserName = getParserName(type);
+
+        List<OptionField> required = new ArrayList<OptionField>();
+        for (OptionField option : options)
+        {
+            if (option.required)
+            {
+                required.add(option);
+            }
+        }
+
+        SourceWriter out = new SourceWriter();
+        if (!packageName.isEmpty())
+        {
+            out.line("package " + packageName + ";");
+            out.line();
+        }
+        out.line("import java.util.ArrayList;");
+        out.line("import java.util.List;");
+        out.line();
+        if (!required.isEmpty())
+        {
+            out.line("import org.terra.projects.terracli.MissingOptionException;");
+        }
+        out.line("import org.terra.projects.terracli.ParseException;");
+        if (usesTypeHandler(options))
+        {
+            out.line("import org.terra.projects.terracli.TypeHandler;");
+        }
+        out.line("import org.terra.projects.terracli.UnrecognizedOptionException;");
+        out.line();
+        out.line("/**");
+        out.line(" * Parser of the {@link " + targetName + "} options, generated from its");
+        out.line(" * <code>@CliOption</code> fields.");
+        out.line(" */");
+        out.line("public final class " + parserName);
+        out.open();
+        out.line("private " + parserName + "()");
+        out.open();
+        out.close();
+        out.line();
+
+        out.line("/**");
+        out.line(" * Sets the fields of the target from the options of the arguments.");
+        out.line(" *");
+        out.line(" * @return the arguments that are not options, in order");
+        out.line(" * @throws ParseException if an option is unknown, lacks its value or");
+        out.line(" * has a value that cannot be converted, or if a required option is missing");
+        out.line(" */");
+        out.line("public static List<String> parse(" + targetName + " target, String[] arguments) throws ParseException");
+        out.open();
+        out.line("List<String> args = new ArrayList<String>();");
+        if (!required.isEmpty())
+        {
+            out.line("boolean[] found = new boolean[" + required.size() + "];");
+        }
+        out.line();
+        out.line("for (int i = 0; i < arguments.length; i++)");
+        out.open();
+        out.line("String token = arguments[i];");
+        out.line("if (\"--\".equals(token))");
+        out.open();
+        out.line("while (++i < arguments.length)");
+        out.open();
+        out.line("args.add(arguments[i]);");
+        out.close();
+        out.line("break;");
+        out.close();
+        out.line("if (!isOption(token))");
+        out.open();
+        out.line("args.add(token);");
+        out.line("continue;");
+        out.close();
+        out.line();
+        out.line("int start = token.startsWith(\"--\") ? 2 : 1;");
+        out.line("int equal = token.indexOf('=', start);");
+        out.line("String name = equal == -1 ? token.substring(start) : token.substring(start, equal);");
+        out.line("String value = equal == -1 ? null : token.substring(equal + 1);");
+        out.line();
+        out.line("switch (name)");
+        out.open();
+        for (OptionField option : options)
+        {
+            for (String name : option.getNames())
+            {
+                out.line("case \"" + name + "\":");
+            }
+            out.indent();
+            if (option.isFlag())
+            {
+                out.line("if (value != null)");
+                out.open();
+                out.line("throw new ParseException(\"Unexpected value for option: \" + name);");
+                out.close();
+                out.line("target." + option.field.getSimpleName() + " = true;");
+            }
+            else
+            {
+                out.line("if (value == null)");
+                out.open();
+                out.line("value = next(arguments, ++i, name);");
+                out.close();
+                writeAssignment(out, option);
+            }
+            if (option.required)
+            {
+                out.line("found[" + required.indexOf(option) + "] = true;");
+            }
+            out.line("break;");
+            out.outdent();
+        }
+        out.line("default:");
+        out.indent();
+        out.line("throw new UnrecognizedOptionException(\"Unrecognized option: \" + token, token);");
+        out.outdent();
+        out.close();
+        out.close();
+
+        if (!required.isEmpty())
+        {
+            out.line();
+            out.line("List<String> missing = new ArrayList<String>();");
+            for (int i = 0; i < required.size(); i++)
+            {
+                out.line("if (!found[" + i + "])");
+                out.open();
+                out.line("missing.add(\"" + required.get(i).getKey() + "\");");
+                out.close();
+            }
+            out.line("if (!missing.isEmpty())");
+            out.open();
+            out.line("throw new MissingOptionException(missing);");
+            out.close();
+        }
+        out.line("return args;");
+        out.close();
+
+        writeHelpers(out);
+        out.close();
+
+        String qualifiedName = packageName.isEmpty() ? parserName : packageName + "." + parserName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())
+        {
+            writer.write(out.toString());
+        }
+        catch (IOException e)
+        {
+            error(type, "Cannot write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private void writeAssignment(SourceWriter out, OptionField option)
+    {
+        String field = "target." + option.field.getSimpleName();
+        TypeMirror type = option.field.asType();
+
+        if (type.getKind() == TypeKind.CHAR)
+        {
+            out.line(field + " = " + CONVERSIONS.get(type.getKind()) + ";");
+        }
+        else if (type.getKind().isPrimitive())
+        {
+            out.line("try");
+            out.open();
+            out.line(field + " = " + CONVERSIONS.get(type.getKind()) + ";");
+            out.close();
+            out.line("catch (NumberFormatException e)");
+            out.open();
+            out.line("throw new ParseException(\"Invalid value for option \" + name + \": \" + value);");
+            out.close();
+        }
+        else if (isString(type))
+        {
+            out.line(field + " = value;");
+        }
+        else
+        {
+            TypeMirror raw = processingEnv.getTypeUtils().erasure(type);
+            out.line(field + " = (" + type + ") TypeHandler.convert(value, " + raw + ".class);");
+        }
+    }
+
+    private static void writeHelpers(SourceWriter out)
+    {
+        out.line();
+        out.line("private static boolean isOption(String token)");
+        out.open();
+        out.line("return token.length() > 1 && token.charAt(0) == '-' && !Character.isDigit(token.charAt(1));");
+        out.close();
+        out.line();
+        out.line("private static String next(String[] arguments, int i, String name) throws ParseException");
+        out.open();
+        out.line("if (i == arguments.length)");
+        out.open();
+        out.line("throw new ParseException(\"Missing argument for option: \" + name);");
+        out.close();
+        out.line("return arguments[i];");
+        out.close();
+        out.line();
+        out.line("private static char toChar(String name, String value) throws ParseException");
+        out.open();
+        out.line("if (value.length() != 1)");
+        out.open();
+        out.line("throw new ParseException(\"Invalid value for option \" + name + \": \" + value);");
+        out.close();
+        out.line("return value.charAt(0);");
+        out.close();
+    }
+
+    private static boolean usesTypeHandler(List<OptionField> options)
+    {
+        for (OptionField option : options)
+        {
+            TypeMirror type = option.field.asType();
+            if (!type.getKind().isPrimitive() && !isString(type))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isString(TypeMirror type)
+    {
+        return type.getKind() == TypeKind.DECLARED
+               && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    /**
+     * Returns the simple name of the parser of a class, prefixed with the
+     * names of the classes it is nested in.
+     */
+    private static String getParserName(TypeElement type)
+    {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element outer = type.getEnclosingElement(); outer instanceof TypeElement;
+             outer = outer.getEnclosingElement())
+        {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.append("Parser").toString();
+    }
+
+    private void error(Element element, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * An annotated field and the names of its option.
+     */
+    private static final class OptionField
+    {
+        private final VariableElement field;
+
+        private final String opt;
+
+        private final String longOpt;
+
+        private final boolean required;
+
+        OptionField(VariableElement field)
+        {
+            CliOption annotation = field.getAnnotation(CliOption.class);
+            this.field = field;
+            this.opt = annotation.opt();
+            this.longOpt = annotation.opt().isEmpty() && annotation.longOpt().isEmpty()
+                           ? field.getSimpleName().toString() : annotation.longOpt();
+            this.required = annotation.required();
+        }
+
+        List<String> getNames()
+        {
+            List<String> names = new ArrayList<String>(2);
+            if (!opt.isEmpty())
+            {
+                names.add(opt);
+            }
+            if (!longOpt.isEmpty())
+            {
+                names.add(longOpt);
+            }
+            return names;
+        }
+
+        /**
+         * Returns the name reported for a missing option, as {@link org.terra.projects.terracli.Option#getKey()}.
+         */
+        String getKey()
+        {
+            return opt.isEmpty() ? longOpt : opt;
+        }
+
+        boolean isFlag()
+        {
+            return field.asType().getKind() == TypeKind.BOOLEAN;
+        }
+    }
+
+    /**
+     * Accumulates source lines, indenting blocks by four spaces.
+     */
+    private static final class SourceWriter
+    {
+        private final StringBuilder source = new StringBuilder();
+
+        private int depth;
+
+        void line(String line)
+        {
+            for (int i = 0; i < depth; i++)
+            {
+                source.append("    ");
+            }
+            source.append(line).append('\n');
+        }
+
+        void line()
+        {
+            source.append('\n');
+        }
+
+        void open()
+        {
+            line("{");
+            depth++;
+        }
+
+        void close()
+        {
+            depth--;
+            line("}");
+        }
+
+        void indent()
+        {
+            depth++;
+        }
+
+        void outdent()
+        {
+            depth--;
+        }
+
+        @Override
+        public String toString()
+        {
+            return source.toString();
+        }
+    }
+}
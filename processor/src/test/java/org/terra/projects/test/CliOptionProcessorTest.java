@@ -0,0 +1,123 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terra.projects.terracli.MissingOptionException;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.UnrecognizedOptionException;
+import org.terra.projects.terracli.processor.CliOptionProcessor;
+
+public class CliOptionProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String CONFIG = "package demo;\n"
+            + "import java.io.File;\n"
+            + "import org.terra.projects.terracli.CliOption;\n"
+            + "public class Config {\n"
+            + "    @CliOption(opt = \"v\", longOpt = \"verbose\") public boolean verbose;\n"
+            + "    @CliOption(opt = \"n\", required = true) public int count;\n"
+            + "    @CliOption public String name;\n"
+            + "    @CliOption(opt = \"f\", longOpt = \"file\") public File file;\n"
+            + "}\n";
+
+    private DiagnosticCollector<JavaFileObject> compile(String name, String source) throws Exception {
+        File src = folder.newFolder();
+        File sourceFile = new File(src, name + ".java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                    Arrays.asList("-d", folder.getRoot().getPath(), "-classpath", System.getProperty("java.class.path")),
+                    null, files.getJavaFileObjects(sourceFile));
+            task.setProcessors(Arrays.asList(new CliOptionProcessor()));
+            task.call();
+        }
+        return diagnostics;
+    }
+
+    private List<?> parse(Object config, String... arguments) throws Exception {
+        Method parse = config.getClass().getClassLoader().loadClass("demo.ConfigParser")
+                .getMethod("parse", config.getClass(), String[].class);
+        try {
+            return (List<?>) parse.invoke(null, config, arguments);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    @Test
+    public void testGeneratedParser() throws Exception {
+        assertTrue(compile("Config", CONFIG).getDiagnostics().isEmpty());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() },
+                getClass().getClassLoader())) {
+            Class<?> type = loader.loadClass("demo.Config");
+
+            Object config = type.getConstructor().newInstance();
+            assertEquals(Arrays.asList("a", "-b"),
+                    parse(config, "a", "--verbose", "-n", "3", "--name=x", "-f", "out.txt", "--", "-b"));
+            assertTrue(type.getField("verbose").getBoolean(config));
+            assertEquals(3, type.getField("count").getInt(config));
+            assertEquals("x", type.getField("name").get(config));
+            assertEquals(new File("out.txt"), type.getField("file").get(config));
+
+            try {
+                parse(type.getConstructor().newInstance(), "-v");
+                fail("Expected MissingOptionException");
+            } catch (MissingOptionException e) {
+                assertEquals(Arrays.asList("n"), e.getMissingOptions());
+            }
+            try {
+                parse(type.getConstructor().newInstance(), "-n", "1", "--verb");
+                fail("Expected UnrecognizedOptionException");
+            } catch (UnrecognizedOptionException e) {
+                // expected
+            }
+            try {
+                parse(type.getConstructor().newInstance(), "-n", "one");
+                fail("Expected ParseException");
+            } catch (ParseException e) {
+                assertEquals("Invalid value for option n: one", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsInvalidFields() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile("Bad", "package demo;\n"
+                + "import org.terra.projects.terracli.CliOption;\n"
+                + "public class Bad {\n"
+                + "    @CliOption(opt = \"v\") private boolean a;\n"
+                + "    @CliOption(opt = \"v\") boolean b;\n"
+                + "}\n");
+
+        assertEquals(2, diagnostics.getDiagnostics().size());
+        assertFalse(new File(folder.getRoot(), "demo/BadParser.class").exists());
+    }
+}
@@ -13,8 +13,12 @@ public class AlreadySelectedException extends ParseException {
     }
     
     public AlreadySelectedException(OptionGroup group, Option option) {
+        this(group, option, group.getSelected());
+    }
+
+    public AlreadySelectedException(OptionGroup group, Option option, String selected) {
         this("The option '" + option.getKey() + "' was specified but an option from this group "
-                + "has already been selected: '" + group.getSelected() + "'");
+                + "has already been selected: '" + selected + "'");
         this.group = group;
         this.option = option;
     }
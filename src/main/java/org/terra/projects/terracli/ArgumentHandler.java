@@ -0,0 +1,18 @@
+package org.terra.projects.terracli;
+
+/**
+ * Receives the arguments that are not options as a streaming parse finds
+ * them, instead of having them collected by the {@link CommandLine}.
+ *
+ * @see DefaultParser#parse(Options, java.util.Iterator, ArgumentHandler, boolean)
+ */
+public interface ArgumentHandler
+{
+    /**
+     * Called for each argument that is neither an option nor the value of one.
+     *
+     * @param argument the argument
+     * @throws ParseException to stop the parse
+     */
+    void handleArgument(String argument) throws ParseException;
+}
@@ -0,0 +1,169 @@
+package org.terra.projects.terracli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits the characters of a reader into arguments, one at a time, the way
+ * a shell splits a command line: arguments are separated by whitespace,
+ * single or double quotes group characters including whitespace and are
+ * removed, and outside of single quotes a backslash escapes a quote,
+ * a backslash or a whitespace. Any other backslash is kept, so Windows
+ * paths need no escaping. An unterminated quote extends to the end of the
+ * input.
+ * <p>
+ * A tokenizer created without a reader splits lines given to
+ * {@link #reset(CharSequence)}, reading their characters in place, so one
+ * instance can serve every line of an interactive session.
+ * <p>
+ * Read errors are thrown as {@link UncheckedIOException}.
+ */
+final class ArgumentTokenizer implements Iterator<String>
+{
+    private final Reader reader;
+
+    private final char[] buffer;
+
+    /** the line being split when there is no reader */
+    private CharSequence line;
+
+    private int position;
+
+    private int limit;
+
+    private final StringBuilder token = new StringBuilder();
+
+    /** the argument read ahead by {@link #hasNext()} */
+    private String next;
+
+    private boolean done;
+
+    ArgumentTokenizer(Reader reader)
+    {
+        this.reader = reader;
+        this.buffer = new char[8192];
+    }
+
+    /**
+     * Creates a tokenizer for the lines given to {@link #reset(CharSequence)}.
+     */
+    ArgumentTokenizer()
+    {
+        this.reader = null;
+        this.buffer = null;
+        this.done = true;
+    }
+
+    /**
+     * Starts splitting the specified line, dropping what remains of the
+     * previous one.
+     */
+    void reset(CharSequence line)
+    {
+        this.line = line;
+        this.position = 0;
+        this.limit = line.length();
+        this.next = null;
+        this.done = false;
+    }
+
+    public boolean hasNext()
+    {
+        if (next == null && !done)
+        {
+            try
+            {
+                next = readToken();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    public String next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        String result = next;
+        next = null;
+        return result;
+    }
+
+    private String readToken() throws IOException
+    {
+        int c = read();
+        while (c != -1 && Character.isWhitespace(c))
+        {
+            c = read();
+        }
+        if (c == -1)
+        {
+            return null;
+        }
+
+        token.setLength(0);
+        char quote = 0;
+        while (c != -1 && (quote != 0 || !Character.isWhitespace(c)))
+        {
+            if (quote != 0 && c == quote)
+            {
+                quote = 0;
+            }
+            else if (quote == 0 && (c == '"' || c == '\''))
+            {
+                quote = (char) c;
+            }
+            else if (c == '\\' && quote != '\'')
+            {
+                c = read();
+                if (c == -1 || !isEscapable(c))
+                {
+                    token.append('\\');
+                    continue;
+                }
+                token.append((char) c);
+            }
+            else
+            {
+                token.append((char) c);
+            }
+            c = read();
+        }
+
+        return token.toString();
+    }
+
+    private static boolean isEscapable(int c)
+    {
+        return c == '"' || c == '\'' || c == '\\' || Character.isWhitespace(c);
+    }
+
+    private int read() throws IOException
+    {
+        if (reader == null)
+        {
+            return position < limit ? line.charAt(position++) : -1;
+        }
+        if (position == limit)
+        {
+            limit = reader.read(buffer);
+            position = 0;
+            if (limit <= 0)
+            {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,291 @@
+package org.terra.projects.terracli;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link CommandLineParser} remembering the command lines it returned, to
+ * answer repeated parses of the same arguments against the same options
+ * without parsing them again.
+ * <p>
+ * The cache is keyed by the options instance and the content of the
+ * argument array. An entry is valid for the {@link CompiledOptions} its
+ * command line was parsed against: adding an option or a group to the options compiles a new
+ * table, which invalidates their entries. Changes made to an
+ * {@link Option} after it was added are not detected, {@link #clear()} the
+ * cache after such changes.
+ * <p>
+ * Entries are evicted in least recently used order once the cache holds
+ * more than its maximum number of entries, or when the total number of
+ * characters of their arguments exceeds its maximum weight. Failed parses
+ * are not cached. The cache is thread safe if the delegate parser is.
+ * <p>
+ * The hits and misses are counted, and reported to the {@link ParseListener}
+ * registered with the cache if any.
+ */
+public class CachingCommandLineParser implements CommandLineParser
+{
+    private final CommandLineParser parser;
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    /** the cached command lines, in access order */
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    /** the total weight of the cached entries */
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** the receiver of the hits and misses, or <code>null</code> */
+    private volatile ParseListener listener;
+
+    /**
+     * @param parser the parser computing the command lines
+     * @param maxEntries the maximum number of cached command lines
+     * @param maxWeight the maximum number of characters of the arguments of
+     * all cached command lines
+     */
+    public CachingCommandLineParser(CommandLineParser parser, int maxEntries, long maxWeight)
+    {
+        if (maxEntries < 1 || maxWeight < 1)
+        {
+            throw new IllegalArgumentException("The cache bounds must be positive");
+        }
+
+        this.parser = parser;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Registers the listener told of the hits and misses of the cache,
+     * replacing the previous one, or removes it if <code>null</code>. The
+     * parses themselves are reported by the listener of the delegate parser.
+     */
+    public void setParseListener(ParseListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public ParseListener getParseListener()
+    {
+        return listener;
+    }
+
+    public CommandLine parse(Options options, String[] arguments) throws ParseException
+    {
+        return parse(options, arguments, false);
+    }
+
+    public CommandLine parse(Options options, String[] arguments, boolean stopAtNonOption) throws ParseException
+    {
+        Key key = new Key(options, arguments == null ? new String[0] : arguments, stopAtNonOption);
+        ParseListener listener = this.listener;
+
+        CommandLine cached = null;
+        synchronized (cache)
+        {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.compiled == options.compile())
+            {
+                hits.incrementAndGet();
+                cached = entry.cmd;
+            }
+            else if (entry != null)
+            {
+                // the options changed since the entry was cached
+                remove(key);
+            }
+        }
+
+        // the listener is called outside of the lock, it may be slow or parse itself
+        if (cached != null)
+        {
+            if (listener != null)
+            {
+                listener.cacheHit();
+            }
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        if (listener != null)
+        {
+            listener.cacheMiss();
+        }
+        CommandLine cmd = parser.parse(options, arguments, stopAtNonOption);
+
+        // the caller may reuse its array, the cached key keeps a copy
+        key = key.copy();
+        long entryWeight = key.weight();
+        synchronized (cache)
+        {
+            // keyed by the table actually parsed against, the options may have changed meanwhile
+            Entry previous = cache.put(key, new Entry(cmd.getCompiledOptions(), cmd, entryWeight));
+            weight += entryWeight - (previous != null ? previous.weight : 0);
+            evict();
+        }
+
+        return cmd;
+    }
+
+    private void remove(Key key)
+    {
+        Entry entry = cache.remove(key);
+        if (entry != null)
+        {
+            weight -= entry.weight;
+        }
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+        while ((cache.size() > maxEntries || weight > maxWeight) && iterator.hasNext())
+        {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the command lines parsed against the specified options.
+     */
+    public void invalidate(Options options)
+    {
+        synchronized (cache)
+        {
+            Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().options == options)
+                {
+                    weight -= entry.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            weight = 0;
+        }
+    }
+
+    public int size()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    private static final class Key
+    {
+        private final Options options;
+
+        private final String[] arguments;
+
+        private final boolean stopAtNonOption;
+
+        private final int hash;
+
+        Key(Options options, String[] arguments, boolean stopAtNonOption)
+        {
+            this(options, arguments, stopAtNonOption,
+                 (System.identityHashCode(options) * 31 + Arrays.hashCode(arguments)) * 2 + (stopAtNonOption ? 1 : 0));
+        }
+
+        private Key(Options options, String[] arguments, boolean stopAtNonOption, int hash)
+        {
+            this.options = options;
+            this.arguments = arguments;
+            this.stopAtNonOption = stopAtNonOption;
+            this.hash = hash;
+        }
+
+        Key copy()
+        {
+            return new Key(options, arguments.clone(), stopAtNonOption, hash);
+        }
+
+        /**
+         * Returns the number of characters of the arguments, plus one per argument.
+         */
+        long weight()
+        {
+            long weight = arguments.length;
+            for (String argument : arguments)
+            {
+                weight += argument == null ? 0 : argument.length();
+            }
+            return weight;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return hash == other.hash && options == other.options && stopAtNonOption == other.stopAtNonOption
+                    && Arrays.equals(arguments, other.arguments);
+        }
+    }
+
+    private static final class Entry
+    {
+        private final CompiledOptions compiled;
+
+        private final CommandLine cmd;
+
+        private final long weight;
+
+        Entry(CompiledOptions compiled, CommandLine cmd, long weight)
+        {
+            this.compiled = compiled;
+            this.cmd = cmd;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.terra.projects.terracli;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a field as an option of a command line, for the annotation
+ * processor of the <code>TerraCLI-processor</code> module.
+ * <p>
+ * For a class <code>Config</code> with annotated fields, the processor
+ * generates a class <code>ConfigParser</code> in the same package whose
+ * static <code>parse(Config, String[])</code> method sets the fields from
+ * the arguments and returns the arguments that are not options. The
+ * generated parser switches on the option names and assigns the fields
+ * directly: no {@link Options} are built and nothing is looked up by
+ * reflection.
+ * <p>
+ * A <code>boolean</code> field is a flag, set to <code>true</code> when the
+ * option is found. A field of any other type takes a value, given as the
+ * next argument or after an equal sign: <code>String</code> and the
+ * primitive numeric types are converted inline, other types through
+ * {@link TypeHandler}. Annotated fields must be neither private, static
+ * nor final.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface CliOption
+{
+    /**
+     * The short name of the option, used after a single hyphen. None by default.
+     */
+    String opt() default "";
+
+    /**
+     * The long name of the option, used after two hyphens. Defaults to the
+     * name of the field when the option has no short name.
+     */
+    String longOpt() default "";
+
+    /**
+     * Whether the option must be given. A missing required option fails the
+     * parse with a {@link MissingOptionException}.
+     */
+    boolean required() default false;
+}
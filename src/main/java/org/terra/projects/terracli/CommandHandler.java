@@ -0,0 +1,17 @@
+package org.terra.projects.terracli;
+
+import java.io.PrintWriter;
+
+/**
+ * Runs a command of a {@link Shell} once its arguments are parsed.
+ */
+public interface CommandHandler
+{
+    /**
+     * @param cmd the options and arguments given to the command
+     * @param out the output of the shell
+     * @throws ParseException if the arguments are not valid for the command;
+     * the shell reports the message and reads the next line
+     */
+    void execute(CommandLine cmd, PrintWriter out) throws ParseException;
+}
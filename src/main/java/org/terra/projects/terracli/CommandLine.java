@@ -0,0 +1,611 @@
+package org.terra.projects.terracli;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The result of parsing an argument list against {@link Options}.
+ * <p>
+ * Options are identified by their id in the {@link CompiledOptions} they
+ * were parsed against: the options found are kept in a bit set and the last
+ * occurrence of each option in an array, both indexed by id, so presence and
+ * value queries do not go through a map. Every occurrence is recorded as the
+ * id of its option and the slice of a shared value table holding the values
+ * given to that occurrence; the definitions themselves are never copied.
+ * <p>
+ * Values are recorded as the argument they were found in and their bounds
+ * within it. The strings are only built when a value is read, and an
+ * argument that is a value by itself is returned as is.
+ * <p>
+ * A command line cannot be modified once returned by a parser, so it can be
+ * shared between threads.
+ */
+public class CommandLine implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** the options parsed against */
+    private final CompiledOptions options;
+
+    /** the remaining arguments */
+    private final List<String> args = new ArrayList<String>();
+
+    /** the ids of the options found */
+    private final BitSet present;
+
+    /** the last occurrence of each option found, by id */
+    private final int[] lastOccurrences;
+
+    /** the option id of each occurrence */
+    private int[] occurrenceIds = new int[8];
+
+    /** the previous occurrence of the same option, or -1 */
+    private int[] previousOccurrences = new int[8];
+
+    /** the index in the value table of the first value of each occurrence */
+    private int[] valueStarts = new int[8];
+
+    private int occurrenceCount;
+
+    /** the argument holding each value, for all occurrences in order */
+    private String[] valueTokens = new String[8];
+
+    /** the index of the first character of each value in its argument */
+    private int[] valueBegins = new int[8];
+
+    /** the index following the last character of each value in its argument */
+    private int[] valueEnds = new int[8];
+
+    private int valueCount;
+
+    /** the values cut from their argument, by index in the value table, created on first use */
+    private transient String[] valueStrings;
+
+    /** the values converted to their option type, by index in the value table, created on first use */
+    private transient Object[] parsedValues;
+
+    /** the list of the values of each option, by id, created on first use */
+    private transient List<?>[] valueLists;
+
+    /** appends the values split by the options to the value table while parsing */
+    private final transient ValueSink sink = new ValueSink()
+    {
+        public void addValue(String token, int begin, int end)
+        {
+            if (valueCount == valueTokens.length)
+            {
+                valueTokens = Arrays.copyOf(valueTokens, valueCount * 2);
+                valueBegins = Arrays.copyOf(valueBegins, valueCount * 2);
+                valueEnds = Arrays.copyOf(valueEnds, valueCount * 2);
+            }
+            valueTokens[valueCount] = token;
+            valueBegins[valueCount] = begin;
+            valueEnds[valueCount] = end;
+            valueCount++;
+        }
+    };
+
+    CommandLine(CompiledOptions options)
+    {
+        this.options = options;
+        this.present = new BitSet(options.getOptionCount());
+        this.lastOccurrences = new int[options.getOptionCount()];
+    }
+
+    /**
+     * Returns the table the command line was parsed against, which resolves
+     * the ids of its options.
+     */
+    CompiledOptions getCompiledOptions()
+    {
+        return options;
+    }
+
+    public boolean hasOption(String opt)
+    {
+        return hasOptionById(options.getOptionId(opt));
+    }
+
+    public boolean hasOption(char opt)
+    {
+        return hasOption(String.valueOf(opt));
+    }
+
+    public boolean hasOption(Option opt)
+    {
+        return hasOptionById(options.getOptionId(opt));
+    }
+
+    /**
+     * Tells if the option with the specified id was found.
+     *
+     * @param id the id of the option in the {@link CompiledOptions} parsed against
+     */
+    public boolean hasOptionById(int id)
+    {
+        return id >= 0 && present.get(id);
+    }
+
+    /**
+     * Returns the key of the option selected in the group by this parse, or
+     * <code>null</code> if no option of the group was found. Parsing does not
+     * update {@link OptionGroup#getSelected()}, so the selection of a parse
+     * is only available here.
+     */
+    public String getSelected(OptionGroup group)
+    {
+        for (Option option : group.getOptions())
+        {
+            if (hasOption(option))
+            {
+                return option.getKey();
+            }
+        }
+        return null;
+    }
+
+    public String getOptionValue(String opt)
+    {
+        return getOptionValueById(options.getOptionId(opt));
+    }
+
+    public String getOptionValue(String opt, String defaultValue)
+    {
+        String value = getOptionValue(opt);
+        return value != null ? value : defaultValue;
+    }
+
+    public String getOptionValue(char opt)
+    {
+        return getOptionValue(String.valueOf(opt));
+    }
+
+    /**
+     * Returns the first value of the option with the specified id, or
+     * <code>null</code> if it has none.
+     */
+    public String getOptionValueById(int id)
+    {
+        int index = getFirstValueIndex(id);
+        return index == -1 ? null : getValue(index);
+    }
+
+    /**
+     * Returns the index in the value table of the first value of the option,
+     * or -1 if it has none.
+     */
+    private int getFirstValueIndex(int id)
+    {
+        if (!hasOptionById(id))
+        {
+            return -1;
+        }
+
+        // the earliest occurrence holding a value
+        int first = -1;
+        for (int i = lastOccurrences[id]; i != -1; i = previousOccurrences[i])
+        {
+            if (getValueCount(i) > 0)
+            {
+                first = i;
+            }
+        }
+        return first == -1 ? -1 : valueStarts[first];
+    }
+
+    /**
+     * Returns the first value of the option converted to the type of the
+     * option by {@link TypeHandler}.
+     *
+     * @param opt the short or long name of the option
+     * @return the converted value, or <code>null</code> if the option has no value
+     * @throws ParseException if the value cannot be converted
+     */
+    public Object getParsedOptionValue(String opt) throws ParseException
+    {
+        return getParsedOptionValueById(options.getOptionId(opt));
+    }
+
+    public Object getParsedOptionValueById(int id) throws ParseException
+    {
+        int index = getFirstValueIndex(id);
+        return index == -1 ? null : getParsedValue(index, getType(options.getOption(id)));
+    }
+
+    /**
+     * Returns the first value of the option as an int, whatever the type of
+     * the option.
+     * The value is parsed from its argument on every call, without boxing
+     * or copying it.
+     *
+     * @return the value, or <code>defaultValue</code> if the option has no value
+     * @throws ParseException if the value is not an int
+     */
+    public int getIntValue(String opt, int defaultValue) throws ParseException
+    {
+        return getIntValueById(options.getOptionId(opt), defaultValue);
+    }
+
+    public int getIntValueById(int id, int defaultValue) throws ParseException
+    {
+        int index = getFirstValueIndex(id);
+        if (index == -1)
+        {
+            return defaultValue;
+        }
+        return TypeHandler.parseInt(valueTokens[index], valueBegins[index], valueEnds[index]);
+    }
+
+    /**
+     * Returns the first value of the option as a long, whatever the type of
+     * the option.
+     * The value is parsed from its argument on every call, without boxing
+     * or copying it.
+     *
+     * @return the value, or <code>defaultValue</code> if the option has no value
+     * @throws ParseException if the value is not a long
+     */
+    public long getLongValue(String opt, long defaultValue) throws ParseException
+    {
+        return getLongValueById(options.getOptionId(opt), defaultValue);
+    }
+
+    public long getLongValueById(int id, long defaultValue) throws ParseException
+    {
+        int index = getFirstValueIndex(id);
+        if (index == -1)
+        {
+            return defaultValue;
+        }
+        return TypeHandler.parseLong(valueTokens[index], valueBegins[index], valueEnds[index]);
+    }
+
+    /**
+     * Returns the first value of the option as a double, whatever the type
+     * of the option.
+     *
+     * @return the value, or <code>defaultValue</code> if the option has no value
+     * @throws ParseException if the value is not a number
+     */
+    public double getDoubleValue(String opt, double defaultValue) throws ParseException
+    {
+        return getDoubleValueById(options.getOptionId(opt), defaultValue);
+    }
+
+    public double getDoubleValueById(int id, double defaultValue) throws ParseException
+    {
+        int index = getFirstValueIndex(id);
+        return index == -1 ? defaultValue : (Double) getParsedValue(index, Double.class);
+    }
+
+    /**
+     * Returns the values of every occurrence of the option.
+     *
+     * @param opt the short or long name of the option
+     * @return the values, or <code>null</code> if the option has none
+     */
+    public String[] getOptionValues(String opt)
+    {
+        return getOptionValuesById(options.getOptionId(opt));
+    }
+
+    public String[] getOptionValues(char opt)
+    {
+        return getOptionValues(String.valueOf(opt));
+    }
+
+    /**
+     * Returns the values of every occurrence of the option with the
+     * specified id, or <code>null</code> if it has none.
+     */
+    public String[] getOptionValuesById(int id)
+    {
+        if (!hasOptionById(id))
+        {
+            return null;
+        }
+
+        int count = 0;
+        for (int i = lastOccurrences[id]; i != -1; i = previousOccurrences[i])
+        {
+            count += getValueCount(i);
+        }
+        if (count == 0)
+        {
+            return null;
+        }
+
+        // fill from the end, walking the occurrences backwards
+        String[] result = new String[count];
+        for (int i = lastOccurrences[id]; i != -1; i = previousOccurrences[i])
+        {
+            for (int j = valueStarts[i] + getValueCount(i) - 1; j >= valueStarts[i]; j--)
+            {
+                result[--count] = getValue(j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of every occurrence of the option as an
+     * unmodifiable list, which is kept so repeated calls return the same list.
+     *
+     * @param opt the short or long name of the option
+     * @return the values, empty if the option has none
+     */
+    public List<String> getOptionValuesList(String opt)
+    {
+        return getOptionValuesListById(options.getOptionId(opt));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getOptionValuesListById(int id)
+    {
+        if (id < 0)
+        {
+            return Collections.emptyList();
+        }
+
+        // racy but safe: concurrent readers at worst build equal lists
+        List<?>[] lists = valueLists;
+        if (lists == null)
+        {
+            lists = new List<?>[options.getOptionCount()];
+            valueLists = lists;
+        }
+
+        List<String> list = (List<String>) lists[id];
+        if (list == null)
+        {
+            String[] values = getOptionValuesById(id);
+            list = values == null ? Collections.<String>emptyList()
+                                  : Collections.unmodifiableList(Arrays.asList(values));
+            lists[id] = list;
+        }
+        return list;
+    }
+
+    public String[] getArgs()
+    {
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * Returns the remaining arguments as an unmodifiable list.
+     */
+    public List<String> getArgList()
+    {
+        return Collections.unmodifiableList(args);
+    }
+
+    /**
+     * Returns the definitions of the options found, one per occurrence.
+     * Their values are available through {@link #getOccurrences()}.
+     */
+    public Option[] getOptions()
+    {
+        Option[] result = new Option[occurrenceCount];
+        for (int i = 0; i < occurrenceCount; i++)
+        {
+            result[i] = options.getOption(occurrenceIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of every option occurrence, in command line order.
+     */
+    public List<OptionOccurrence> getOccurrences()
+    {
+        return new AbstractList<OptionOccurrence>()
+        {
+            @Override
+            public OptionOccurrence get(int index)
+            {
+                if (index < 0 || index >= occurrenceCount)
+                {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + occurrenceCount);
+                }
+                return new OptionOccurrence(CommandLine.this, index);
+            }
+
+            @Override
+            public int size()
+            {
+                return occurrenceCount;
+            }
+        };
+    }
+
+    Option getOption(int occurrence)
+    {
+        return options.getOption(occurrenceIds[occurrence]);
+    }
+
+    /**
+     * Returns the values of an occurrence as an unmodifiable view of the
+     * shared value table.
+     */
+    List<String> getValues(int occurrence)
+    {
+        return new ValueList(valueStarts[occurrence], getValueCount(occurrence));
+    }
+
+    /**
+     * Returns the value at the specified index of the value table, cutting it
+     * from its argument on first use.
+     */
+    String getValue(int index)
+    {
+        String token = valueTokens[index];
+        int begin = valueBegins[index];
+        int end = valueEnds[index];
+        if (begin == 0 && end == token.length())
+        {
+            return token;
+        }
+
+        // racy but safe: concurrent readers at worst cut the same value twice
+        String[] strings = valueStrings;
+        if (strings == null)
+        {
+            strings = new String[valueCount];
+            valueStrings = strings;
+        }
+
+        String value = strings[index];
+        if (value == null)
+        {
+            value = token.substring(begin, end);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Returns a value converted to the specified type. The last conversion of
+     * each value is kept, so reading a value as the same type again neither
+     * parses nor allocates.
+     */
+    Object getParsedValue(int index, Class<?> type) throws ParseException
+    {
+        if (type == String.class)
+        {
+            return getValue(index);
+        }
+
+        // racy but safe: concurrent readers at worst convert the same value twice
+        Object[] parsed = parsedValues;
+        if (parsed == null)
+        {
+            parsed = new Object[valueCount];
+            parsedValues = parsed;
+        }
+
+        Object value = parsed[index];
+        if (value == null || !TypeHandler.wrap(type).isInstance(value))
+        {
+            value = TypeHandler.convert(getValue(index), type);
+            parsed[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the type of the values of an option.
+     */
+    static Class<?> getType(Option option)
+    {
+        Object type = option.getType();
+        return type instanceof Class ? (Class<?>) type : String.class;
+    }
+
+    /**
+     * Returns the index in the value table of the first value of an occurrence.
+     */
+    int getValueStart(int occurrence)
+    {
+        return valueStarts[occurrence];
+    }
+
+    private int getValueCount(int occurrence)
+    {
+        int end = occurrence + 1 < occurrenceCount ? valueStarts[occurrence + 1] : valueCount;
+        return end - valueStarts[occurrence];
+    }
+
+    void addArg(String arg)
+    {
+        args.add(arg);
+    }
+
+    void addOption(Option opt)
+    {
+        addOption(options.getOptionId(opt));
+    }
+
+    /**
+     * Records a new occurrence of the option; the values added next belong to it.
+     */
+    void addOption(int id)
+    {
+        if (occurrenceCount == occurrenceIds.length)
+        {
+            occurrenceIds = Arrays.copyOf(occurrenceIds, occurrenceCount * 2);
+            previousOccurrences = Arrays.copyOf(previousOccurrences, occurrenceCount * 2);
+            valueStarts = Arrays.copyOf(valueStarts, occurrenceCount * 2);
+        }
+        occurrenceIds[occurrenceCount] = id;
+        previousOccurrences[occurrenceCount] = present.get(id) ? lastOccurrences[id] : -1;
+        valueStarts[occurrenceCount] = valueCount;
+
+        present.set(id);
+        lastOccurrences[id] = occurrenceCount;
+        occurrenceCount++;
+    }
+
+    /**
+     * Adds a value to the last occurrence, split and checked by the rules of its option.
+     */
+    void addValueForProcessing(String value)
+    {
+        addValueForProcessing(value, 0, value.length());
+    }
+
+    /**
+     * Adds the value found between the specified bounds of an argument to the
+     * last occurrence, without copying it out of the argument.
+     */
+    void addValueForProcessing(String token, int begin, int end)
+    {
+        getOption(occurrenceCount - 1).addValueForProcessing(token, begin, end, sink, getLastValueCount());
+    }
+
+    /**
+     * Returns the number of values held by the last occurrence.
+     */
+    int getLastValueCount()
+    {
+        return valueCount - valueStarts[occurrenceCount - 1];
+    }
+
+    /**
+     * A slice of the value table, cutting the values from their argument as
+     * they are read.
+     */
+    private final class ValueList extends AbstractList<String> implements RandomAccess
+    {
+        private final int start;
+
+        private final int count;
+
+        ValueList(int start, int count)
+        {
+            this.start = start;
+            this.count = count;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            if (index < 0 || index >= count)
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return getValue(start + index);
+        }
+
+        @Override
+        public int size()
+        {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.terra.projects.terracli;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A command and its subcommands, each with its own {@link Options}.
+ * <p>
+ * The options of a command are given by a supplier which only runs the
+ * first time the command is chosen, so a tool with many subcommands builds
+ * the options of the ones it runs and nothing else. The result of the
+ * supplier is kept for the following parses.
+ * <p>
+ * A command with subcommands is parsed with <code>stopAtNonOption</code>
+ * set: its options end at the first argument that is not one, which names
+ * the subcommand, and the remaining arguments are parsed by the
+ * subcommand. A command without subcommands parses all its arguments.
+ * <p>
+ * The tree should be built before it is shared; parsing may then happen
+ * from any number of threads.
+ */
+public class CommandTree
+{
+    private final Supplier<Options> supplier;
+
+    /** the options returned by the supplier, once it ran */
+    private volatile Options options;
+
+    private final Map<String, CommandTree> subcommands = new LinkedHashMap<String, CommandTree>();
+
+    /**
+     * @param options the supplier of the options of the command, which must
+     * not return <code>null</code>
+     */
+    public CommandTree(Supplier<Options> options)
+    {
+        this.supplier = options;
+    }
+
+    /**
+     * Adds a subcommand and returns it, so that its own subcommands can be added.
+     *
+     * @param name the argument choosing the subcommand
+     * @param options the supplier of the options of the subcommand
+     */
+    public CommandTree addSubcommand(String name, Supplier<Options> options)
+    {
+        CommandTree subcommand = new CommandTree(options);
+        addSubcommand(name, subcommand);
+        return subcommand;
+    }
+
+    public CommandTree addSubcommand(String name, CommandTree subcommand)
+    {
+        subcommands.put(name, subcommand);
+        return this;
+    }
+
+    public CommandTree getSubcommand(String name)
+    {
+        return subcommands.get(name);
+    }
+
+    public Set<String> getSubcommandNames()
+    {
+        return Collections.unmodifiableSet(subcommands.keySet());
+    }
+
+    /**
+     * Returns the options of the command, running the supplier on the first call.
+     */
+    public Options getOptions()
+    {
+        Options result = options;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = options;
+                if (result == null)
+                {
+                    result = supplier.get();
+                    options = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells if the options of the command have been built.
+     */
+    public boolean isLoaded()
+    {
+        return options != null;
+    }
+
+    /**
+     * Parses the arguments against this command and the subcommands they choose.
+     *
+     * @throws ParseException if the arguments are not valid for a command
+     * along the path, or name a subcommand that does not exist
+     */
+    public ParsedCommand parse(DefaultParser parser, String[] arguments) throws ParseException
+    {
+        List<String> list = arguments == null ? Collections.<String>emptyList() : Arrays.asList(arguments);
+        return parse(parser, null, list.iterator());
+    }
+
+    private ParsedCommand parse(DefaultParser parser, String name, Iterator<String> arguments) throws ParseException
+    {
+        if (subcommands.isEmpty())
+        {
+            return new ParsedCommand(name, parser.parse(getOptions(), arguments, null, false), null);
+        }
+
+        // stop at the name of the subcommand, the rest is handed over to it
+        CommandLine cmd = parser.parse(getOptions(), arguments, null, true);
+        List<String> args = cmd.getArgList();
+        if (args.isEmpty())
+        {
+            return new ParsedCommand(name, cmd, null);
+        }
+
+        String subcommandName = args.get(0);
+        CommandTree subcommand = subcommands.get(subcommandName);
+        if (subcommand == null && subcommandName.startsWith("-") && subcommandName.length() > 1)
+        {
+            // an unknown option stopped the parse before any subcommand
+            throw new UnrecognizedOptionException("Unrecognized option: " + subcommandName, subcommandName);
+        }
+        if (subcommand == null)
+        {
+            throw new ParseException("Unknown command: " + subcommandName);
+        }
+
+        Iterator<String> remaining = args.subList(1, args.size()).iterator();
+        return new ParsedCommand(name, cmd, subcommand.parse(parser, subcommandName, remaining));
+    }
+}
@@ -0,0 +1,460 @@
+package org.terra.projects.terracli;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of an {@link Options} definition, prepared for
+ * parsing. Long options are indexed in a prefix trie so that exact,
+ * unique-prefix and ambiguous matches are resolved in time proportional to
+ * the length of the token rather than the number of long options.
+ * <p>
+ * Every lookup also accepts a region of a <code>CharSequence</code>, so
+ * tokens can be classified without copying their name or stripping their
+ * hyphens into a new string.
+ * <p>
+ * Every option is given a dense integer id, its position in registration
+ * order, and lookups resolve names to ids; a {@link CommandLine} stores its
+ * options in arrays indexed by these ids.
+ * <p>
+ * Instances are obtained through {@link Options#compile()} and may be
+ * shared freely between threads.
+ */
+public final class CompiledOptions implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** the options, indexed by id */
+    private final Option[] options;
+
+    /** the id of each long option, by registration position */
+    private final int[] longOptionIds;
+
+    private final List<Object> requiredOpts;
+
+    /** the positions of all the entries of {@link #requiredOpts} */
+    private final BitSet requiredEntries;
+
+    /** the position of each required option in {@link #requiredOpts} by option id, or -1 */
+    private final int[] requiredPositions;
+
+    /** the position of the group of each option in {@link #requiredOpts} by option id, or -1 */
+    private final int[] requiredGroupPositions;
+
+    /** the distinct option groups, indexed by group id */
+    private final OptionGroup[] groups;
+
+    /** the distinct option groups, in the order of their first option */
+    private final Collection<OptionGroup> groupList;
+
+    /** the group id of each option by option id, or -1 */
+    private final int[] groupIds;
+
+    private final PrefixTrie shortOptionIndex;
+
+    private final PrefixTrie longOptionIndex;
+
+    CompiledOptions(Map<String, Option> shortOptions, Map<String, Option> longOptions,
+                    Collection<Object> requiredOpts, Map<String, OptionGroup> optionGroups)
+    {
+        this.options = shortOptions.values().toArray(new Option[shortOptions.size()]);
+
+        // long options are registered under their key as well, which gives their id
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for (int id = 0; id < options.length; id++)
+        {
+            ids.put(options[id].getKey(), id);
+        }
+        this.longOptionIds = new int[longOptions.size()];
+        int position = 0;
+        for (Option option : longOptions.values())
+        {
+            longOptionIds[position++] = ids.get(option.getKey());
+        }
+
+        this.requiredOpts = Collections.unmodifiableList(new ArrayList<Object>(requiredOpts));
+        Map<OptionGroup, Integer> distinct = new IdentityHashMap<OptionGroup, Integer>();
+        List<OptionGroup> ordered = new ArrayList<OptionGroup>();
+        this.groupIds = new int[options.length];
+        Arrays.fill(groupIds, -1);
+        for (Map.Entry<String, OptionGroup> entry : optionGroups.entrySet())
+        {
+            Integer id = distinct.get(entry.getValue());
+            if (id == null)
+            {
+                id = ordered.size();
+                distinct.put(entry.getValue(), id);
+                ordered.add(entry.getValue());
+            }
+            Integer optionId = ids.get(entry.getKey());
+            if (optionId != null)
+            {
+                groupIds[optionId] = id;
+            }
+        }
+        this.groups = ordered.toArray(new OptionGroup[ordered.size()]);
+        this.groupList = Collections.unmodifiableList(Arrays.asList(groups));
+
+        this.requiredEntries = new BitSet(this.requiredOpts.size());
+        this.requiredPositions = new int[options.length];
+        this.requiredGroupPositions = new int[options.length];
+        Arrays.fill(requiredPositions, -1);
+        Arrays.fill(requiredGroupPositions, -1);
+        position = 0;
+        for (Object required : this.requiredOpts)
+        {
+            requiredEntries.set(position);
+            if (required instanceof OptionGroup)
+            {
+                for (Option option : ((OptionGroup) required).getOptions())
+                {
+                    Integer id = ids.get(option.getKey());
+                    if (id != null)
+                    {
+                        requiredGroupPositions[id] = position;
+                    }
+                }
+            }
+            else if (ids.containsKey(required))
+            {
+                requiredPositions[ids.get(required)] = position;
+            }
+            position++;
+        }
+        this.shortOptionIndex = new PrefixTrie(shortOptions.keySet());
+        this.longOptionIndex = new PrefixTrie(longOptions.keySet());
+    }
+
+    /**
+     * Creates a table from its parts, as read from a snapshot: the
+     * definitions are already assigned their ids and the indexes are built.
+     *
+     * @see OptionsSnapshot
+     */
+    CompiledOptions(Option[] options, int[] longOptionIds, List<Object> requiredOpts, OptionGroup[] groups,
+                    int[] groupIds, PrefixTrie shortOptionIndex, PrefixTrie longOptionIndex)
+    {
+        this.options = options;
+        this.longOptionIds = longOptionIds;
+        this.requiredOpts = Collections.unmodifiableList(requiredOpts);
+        this.groups = groups;
+        this.groupList = Collections.unmodifiableList(Arrays.asList(groups));
+        this.groupIds = groupIds;
+        this.shortOptionIndex = shortOptionIndex;
+        this.longOptionIndex = longOptionIndex;
+
+        this.requiredEntries = new BitSet(requiredOpts.size());
+        this.requiredPositions = new int[options.length];
+        this.requiredGroupPositions = new int[options.length];
+        Arrays.fill(requiredPositions, -1);
+        Arrays.fill(requiredGroupPositions, -1);
+        for (int position = 0; position < requiredOpts.size(); position++)
+        {
+            requiredEntries.set(position);
+            Object required = requiredOpts.get(position);
+            if (required instanceof OptionGroup)
+            {
+                for (int id = 0; id < options.length; id++)
+                {
+                    if (groupIds[id] != -1 && groups[groupIds[id]] == required)
+                    {
+                        requiredGroupPositions[id] = position;
+                    }
+                }
+            }
+            else
+            {
+                String key = (String) required;
+                int id = shortOptionIndex.indexOf(key, 0, key.length());
+                if (id != -1)
+                {
+                    requiredPositions[id] = position;
+                }
+            }
+        }
+    }
+
+    public Collection<Option> getOptions()
+    {
+        return Collections.unmodifiableList(Arrays.asList(options));
+    }
+
+    /**
+     * Returns the number of options, ids ranging from 0 to this number excluded.
+     */
+    public int getOptionCount()
+    {
+        return options.length;
+    }
+
+    public Option getOption(int id)
+    {
+        return options[id];
+    }
+
+    int getLongOptionCount()
+    {
+        return longOptionIds.length;
+    }
+
+    /**
+     * Returns the id of the long option registered at the specified position.
+     */
+    int getLongOptionId(int position)
+    {
+        return longOptionIds[position];
+    }
+
+    PrefixTrie getShortOptionIndex()
+    {
+        return shortOptionIndex;
+    }
+
+    PrefixTrie getLongOptionIndex()
+    {
+        return longOptionIndex;
+    }
+
+    public int getOptionId(String opt)
+    {
+        return getOptionId(opt, 0, opt.length());
+    }
+
+    /**
+     * Returns the id of the option named by a region of a character
+     * sequence, with or without leading hyphens. Short names are looked up
+     * before long ones.
+     *
+     * @return the id of the option, or -1 if there is no such option
+     */
+    public int getOptionId(CharSequence opt, int offset, int length)
+    {
+        int start = offset + countHyphens(opt, offset, length);
+        int end = offset + length;
+
+        int id = shortOptionIndex.indexOf(opt, start, end);
+        if (id != -1)
+        {
+            return id;
+        }
+
+        int position = longOptionIndex.indexOf(opt, start, end);
+        return position != -1 ? longOptionIds[position] : -1;
+    }
+
+    /**
+     * Returns the id of the option, found by its key.
+     *
+     * @return the id of the option, or -1 if it is not registered
+     */
+    public int getOptionId(Option opt)
+    {
+        String key = opt.getKey();
+        return shortOptionIndex.indexOf(key, 0, key.length());
+    }
+
+    /**
+     * Returns the id of the option whose short name, stripped of hyphens, is
+     * the region, or -1.
+     */
+    int getShortOptionId(CharSequence opt, int offset, int length)
+    {
+        return shortOptionIndex.indexOf(opt, offset + countHyphens(opt, offset, length), offset + length);
+    }
+
+    public List<Object> getRequiredOptions()
+    {
+        return requiredOpts;
+    }
+
+    /**
+     * Returns a new bit set holding a bit for each required option and group,
+     * by position in {@link #getRequiredOptions()}.
+     */
+    BitSet getRequiredEntries()
+    {
+        return (BitSet) requiredEntries.clone();
+    }
+
+    /**
+     * Returns the position in {@link #getRequiredOptions()} of the option
+     * with the specified id, or -1 if it is not required.
+     */
+    int getRequiredPosition(int id)
+    {
+        return requiredPositions[id];
+    }
+
+    /**
+     * Returns the position in {@link #getRequiredOptions()} of the group of
+     * the option with the specified id, or -1 if it has no required group.
+     */
+    int getRequiredGroupPosition(int id)
+    {
+        return requiredGroupPositions[id];
+    }
+
+    public Option getOption(String opt)
+    {
+        return getOption(opt, 0, opt.length());
+    }
+
+    /**
+     * Returns the option named by a region of a character sequence, with or
+     * without leading hyphens, without copying the region.
+     *
+     * @param opt the characters holding the name
+     * @param offset the index of the first character of the name
+     * @param length the number of characters of the name
+     * @return the option, or <code>null</code> if there is no such option
+     */
+    public Option getOption(CharSequence opt, int offset, int length)
+    {
+        int id = getOptionId(opt, offset, length);
+        return id != -1 ? options[id] : null;
+    }
+
+    /**
+     * Returns the long options matching the specified name: the name itself
+     * if it is a long option, otherwise every long option it is a prefix of.
+     *
+     * @param opt the partial name of the option, with or without hyphens
+     * @return the matching long option names
+     */
+    public List<String> getMatchingOptions(String opt)
+    {
+        return getMatchingOptions(opt, 0, opt.length());
+    }
+
+    public List<String> getMatchingOptions(CharSequence opt, int offset, int length)
+    {
+        return longOptionIndex.getMatching(opt, offset + countHyphens(opt, offset, length), offset + length);
+    }
+
+    /**
+     * Returns the long option matched by the name, exactly or as its only
+     * prefix, without building the list of candidates.
+     *
+     * @return the id of the long option, or -1 if there is no match or the
+     * match is ambiguous
+     */
+    int getMatchingOptionId(CharSequence opt, int offset, int length)
+    {
+        int position = longOptionIndex.matchIndexOf(opt, offset + countHyphens(opt, offset, length), offset + length);
+        return position != -1 ? longOptionIds[position] : -1;
+    }
+
+    boolean hasMatchingOptions(CharSequence opt, int offset, int length)
+    {
+        return longOptionIndex.hasMatch(opt, offset + countHyphens(opt, offset, length), offset + length);
+    }
+
+    /**
+     * Returns the longest long option the token, stripped of its leading
+     * hyphens, starts with, such that the option name and the remaining
+     * value are both at least <code>minLength</code> characters long.
+     *
+     * @return the name of the long option, or <code>null</code>
+     */
+    String getLongPrefix(CharSequence token, int offset, int length, int minLength)
+    {
+        int start = offset + countHyphens(token, offset, length);
+        int end = offset + length;
+
+        return longOptionIndex.getLongestPrefix(token, start, end, minLength, end - start - minLength);
+    }
+
+    public boolean hasOption(String opt)
+    {
+        return hasOption(opt, 0, opt.length());
+    }
+
+    public boolean hasOption(CharSequence opt, int offset, int length)
+    {
+        return hasShortOption(opt, offset, length) || hasLongOption(opt, offset, length);
+    }
+
+    public boolean hasLongOption(String opt)
+    {
+        return hasLongOption(opt, 0, opt.length());
+    }
+
+    public boolean hasLongOption(CharSequence opt, int offset, int length)
+    {
+        return longOptionIndex.indexOf(opt, offset + countHyphens(opt, offset, length), offset + length) != -1;
+    }
+
+    public boolean hasShortOption(String opt)
+    {
+        return hasShortOption(opt, 0, opt.length());
+    }
+
+    public boolean hasShortOption(CharSequence opt, int offset, int length)
+    {
+        return getShortOptionId(opt, offset, length) != -1;
+    }
+
+    /**
+     * Returns the number of leading hyphens stripped from an option name,
+     * following the rules of <code>Util.stripLeadingHyphens</code>.
+     */
+    private static int countHyphens(CharSequence s, int offset, int length)
+    {
+        if (length > 1 && s.charAt(offset) == '-' && s.charAt(offset + 1) == '-')
+        {
+            return 2;
+        }
+        return length > 0 && s.charAt(offset) == '-' ? 1 : 0;
+    }
+
+    public OptionGroup getOptionGroup(Option opt)
+    {
+        int id = getOptionId(opt);
+        return id != -1 ? getOptionGroup(id) : null;
+    }
+
+    /**
+     * Returns the group of the option with the specified id, or
+     * <code>null</code> if the option is not part of a group.
+     */
+    public OptionGroup getOptionGroup(int id)
+    {
+        int group = groupIds[id];
+        return group != -1 ? groups[group] : null;
+    }
+
+    /**
+     * Returns the distinct option groups, indexed by group id.
+     */
+    public Collection<OptionGroup> getOptionGroups()
+    {
+        return groupList;
+    }
+
+    int getGroupCount()
+    {
+        return groups.length;
+    }
+
+    OptionGroup getGroup(int id)
+    {
+        return groups[id];
+    }
+
+    /**
+     * Returns the id of the group the option with the specified id belongs
+     * to, or -1 if the option is not part of a group.
+     */
+    int getGroupId(int id)
+    {
+        return groupIds[id];
+    }
+}
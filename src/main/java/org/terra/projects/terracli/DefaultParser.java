@@ -1,26 +1,76 @@
 package org.terra.projects.terracli;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
-
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Default command line parser.
+ * <p>
+ * The parser keeps no state between invocations: everything a parse needs is
+ * held in a {@link ParseContext} created per call, so a single instance can
+ * be shared by any number of threads.
+ * <p>
+ * When response files are enabled, an argument <code>@file</code> is
+ * replaced by the arguments read from the file, separated by whitespace and
+ * grouped by quotes as in a shell. Response files may refer to other
+ * response files. They are read through a memory mapping and split as they
+ * are parsed, so their arguments are never collected in an array.
+ * <p>
+ * A {@link ParseListener} registered with the parser is told the duration
+ * and the number of tokens of every parse, and the exception of the failed
+ * ones. Without a listener nothing is measured.
+ */
 public class DefaultParser implements CommandLineParser
-{*/
-    protected CommandLine cmd;
-    
-    protected Options options;
-
-    protected boolean stopAtNonOption;
-
-    protected String currentToken;
- 
-    protected Option currentOption;
- 
-    protected boolean skipParsing;
- 
-    protected List expectedOpts;
- 
+{
+    /** flag indicating if the @file arguments are expanded */
+    private final boolean expandResponseFiles;
+
+    /** the receiver of the measurements of the parses, or <code>null</code> */
+    private volatile ParseListener listener;
+
+    public DefaultParser()
+    {
+        this(false);
+    }
+
+    /**
+     * @param expandResponseFiles if <code>true</code> the arguments starting
+     * with <code>@</code> are replaced by the content of the file they name
+     */
+    public DefaultParser(boolean expandResponseFiles)
+    {
+        this.expandResponseFiles = expandResponseFiles;
+    }
+
+    /**
+     * Registers the listener measuring the parses, replacing the previous
+     * one, or removes it if <code>null</code>.
+     */
+    public void setParseListener(ParseListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public ParseListener getParseListener()
+    {
+        return listener;
+    }
+
     public CommandLine parse(Options options, String[] arguments) throws ParseException
     {
         return parse(options, arguments, null);
@@ -39,40 +89,310 @@ public class DefaultParser implements CommandLineParser
     public CommandLine parse(Options options, String[] arguments, Properties properties, boolean stopAtNonOption)
             throws ParseException
     {
-        this.options = options;
-        this.stopAtNonOption = stopAtNonOption;
-        skipParsing = false;
-        currentOption = null;
-        expectedOpts = new ArrayList(options.getRequiredOptions());
+        ParseContext ctx = start(new ParseContext(options.compile(), stopAtNonOption, null));
+
+        try
+        {
+            if (arguments != null)
+            {
+                for (String argument : arguments)
+                {
+                    handleToken(ctx, argument);
+                }
+            }
+
+            return finish(ctx, properties);
+        }
+        catch (ParseException e)
+        {
+            throw failed(ctx, e);
+        }
+    }
+
+    /**
+     * Parses the arguments as the iterator returns them, without collecting
+     * them first. The arguments that are not options are passed to the
+     * handler as soon as they are found, so they are not retained either.
+     *
+     * @param options the specified Options
+     * @param arguments the command line arguments
+     * @param handler the receiver of the arguments that are not options, or
+     * <code>null</code> to keep them in the returned command line
+     * @param stopAtNonOption if <code>true</code> an unrecognized argument stops
+     * the parsing and the remaining arguments are handled as arguments
+     * @return the options found
+     * @throws ParseException if there are any problems encountered while parsing
+     * the command line tokens, or if the handler throws one
+     */
+    public CommandLine parse(Options options, Iterator<String> arguments, ArgumentHandler handler,
+                             boolean stopAtNonOption) throws ParseException
+    {
+        ParseContext ctx = start(new ParseContext(options.compile(), stopAtNonOption, handler));
+
+        try
+        {
+            while (arguments.hasNext())
+            {
+                handleToken(ctx, arguments.next());
+            }
+
+            return finish(ctx, null);
+        }
+        catch (ParseException e)
+        {
+            throw failed(ctx, e);
+        }
+    }
+
+    /**
+     * Parses the arguments read from the reader as they are read. Arguments
+     * are separated by whitespace and may be grouped by single or double
+     * quotes, as in a shell.
+     *
+     * @throws IOException if the arguments cannot be read
+     * @see #parse(Options, Iterator, ArgumentHandler, boolean)
+     */
+    public CommandLine parse(Options options, Reader arguments, ArgumentHandler handler, boolean stopAtNonOption)
+            throws ParseException, IOException
+    {
+        try
+        {
+            return parse(options, new ArgumentTokenizer(arguments), handler, stopAtNonOption);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses the arguments in event mode: every option, value and argument
+     * is passed to the handler as it is found and nothing is retained. The
+     * required options and the option groups are checked at the end of the
+     * arguments, as in a regular parse.
+     *
+     * @param options the specified Options
+     * @param arguments the command line arguments
+     * @param handler the receiver of the events
+     * @param stopAtNonOption if <code>true</code> an unrecognized argument stops
+     * the parsing and the remaining arguments are handled as arguments
+     * @throws ParseException if there are any problems encountered while parsing
+     * the command line tokens, or if the handler throws one
+     */
+    public void parseEvents(Options options, String[] arguments, ParseEventHandler handler, boolean stopAtNonOption)
+            throws ParseException
+    {
+        ParseContext ctx = start(new ParseContext(options.compile(), handler, stopAtNonOption));
+
+        try
+        {
+            if (arguments != null)
+            {
+                for (String argument : arguments)
+                {
+                    handleToken(ctx, argument);
+                }
+            }
 
-        // clear the data from the groups
-        for (OptionGroup group : options.getOptionGroups())
+            finish(ctx, null);
+        }
+        catch (ParseException e)
         {
-            group.setSelected(null);
+            throw failed(ctx, e);
         }
+    }
 
-        cmd = new CommandLine();
+    /**
+     * Parses the arguments in event mode as the iterator returns them.
+     *
+     * @see #parseEvents(Options, String[], ParseEventHandler, boolean)
+     */
+    public void parseEvents(Options options, Iterator<String> arguments, ParseEventHandler handler,
+                            boolean stopAtNonOption) throws ParseException
+    {
+        ParseContext ctx = start(new ParseContext(options.compile(), handler, stopAtNonOption));
 
-        if (arguments != null)
+        try
         {
-            for (String argument : arguments)
+            while (arguments.hasNext())
             {
-                handleToken(argument);
+                handleToken(ctx, arguments.next());
             }
+
+            finish(ctx, null);
+        }
+        catch (ParseException e)
+        {
+            throw failed(ctx, e);
+        }
+    }
+
+    /**
+     * Parses each argument list independently, in parallel on the common
+     * fork/join pool.
+     *
+     * @param options the specified Options
+     * @param arguments the argument lists
+     * @return the result of each argument list, in the same order; a failed
+     * parse is reported in its result and does not stop the others
+     */
+    public List<ParseResult> parseAll(Options options, List<String[]> arguments)
+    {
+        return parseAll(options, arguments, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses each argument list independently, in parallel on the specified pool.
+     *
+     * @see #parseAll(Options, List)
+     */
+    public List<ParseResult> parseAll(Options options, List<String[]> arguments, ForkJoinPool pool)
+    {
+        // compile once, the table is shared by every task
+        options.compile();
+
+        if (!(arguments instanceof RandomAccess))
+        {
+            arguments = new ArrayList<String[]>(arguments);
+        }
+
+        ParseResult[] results = new ParseResult[arguments.size()];
+        pool.invoke(new BatchTask(options, arguments, results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Maps each argument list to the result of its parse. The results are
+     * computed as the stream is consumed, in parallel if the stream is
+     * parallel.
+     *
+     * @see #parseAll(Options, List)
+     */
+    public Stream<ParseResult> parseAll(Options options, Stream<String[]> arguments)
+    {
+        options.compile();
+        return arguments.map(args -> parseResult(options, args));
+    }
+
+    private ParseResult parseResult(Options options, String[] arguments)
+    {
+        try
+        {
+            return new ParseResult(arguments, parse(options, arguments), null);
         }
+        catch (ParseException e)
+        {
+            return new ParseResult(arguments, null, e);
+        }
+    }
+
+    /**
+     * Parses a range of a batch, splitting it in halves down to
+     * {@link #THRESHOLD} argument lists.
+     */
+    private final class BatchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private static final int THRESHOLD = 64;
 
+        private final Options options;
+
+        private final List<String[]> arguments;
+
+        private final ParseResult[] results;
+
+        private final int from;
+
+        private final int to;
+
+        BatchTask(Options options, List<String[]> arguments, ParseResult[] results, int from, int to)
+        {
+            this.options = options;
+            this.arguments = arguments;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= THRESHOLD)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    results[i] = parseResult(options, arguments.get(i));
+                }
+            }
+            else
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(options, arguments, results, from, middle),
+                          new BatchTask(options, arguments, results, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Hands the current listener to the context and starts measuring the
+     * parse if there is one.
+     */
+    private ParseContext start(ParseContext ctx)
+    {
+        ParseListener listener = this.listener;
+        if (listener != null)
+        {
+            ctx.listener = listener;
+            ctx.startNanos = System.nanoTime();
+        }
+        return ctx;
+    }
+
+    /**
+     * Reports the failure of the parse to the listener and returns the
+     * exception to throw.
+     */
+    private ParseException failed(ParseContext ctx, ParseException e)
+    {
+        if (ctx.listener != null)
+        {
+            ctx.listener.failed(ctx.tokenCount, System.nanoTime() - ctx.startNanos, e);
+        }
+        return e;
+    }
+
+    /**
+     * Checks the end of the arguments and returns the command line built,
+     * <code>null</code> in event mode.
+     */
+    private CommandLine finish(ParseContext ctx, Properties properties) throws ParseException
+    {
         // check the arguments of the last option
-        checkRequiredArgs();
+        checkRequiredArgs(ctx);
 
         // add the default options
-        handleProperties(properties);
+        if (ctx.listener != null && properties != null)
+        {
+            long start = System.nanoTime();
+            handleProperties(ctx, properties);
+            ctx.listener.propertiesHandled(properties.size(), System.nanoTime() - start);
+        }
+        else
+        {
+            handleProperties(ctx, properties);
+        }
 
-        checkRequiredOptions();
+        checkRequiredOptions(ctx);
 
-        return cmd;
+        if (ctx.listener != null)
+        {
+            ctx.listener.parsed(ctx.tokenCount, System.nanoTime() - ctx.startNanos);
+        }
+        return ctx.cmd;
     }
 
-    private void handleProperties(Properties properties) throws ParseException
+    private void handleProperties(ParseContext ctx, Properties properties) throws ParseException
     {
         if (properties == null)
         {
@@ -83,29 +403,22 @@ public class DefaultParser implements CommandLineParser
         {
             String option = e.nextElement().toString();
 
-            Option opt = options.getOption(option);
-            if (opt == null)
+            int id = ctx.options.getOptionId(option);
+            if (id == -1)
             {
                 throw new UnrecognizedOptionException("Default option wasn't defined", option);
             }
+            Option opt = ctx.options.getOption(id);
 
             // if the option is part of a group, check if another option of the group has been selected
-            OptionGroup group = options.getOptionGroup(opt);
-            boolean selected = group != null && group.getSelected() != null;
+            boolean selected = ctx.groupSelection.isSelected(id);
 
-            if (!cmd.hasOption(option) && !selected)
+            if (!ctx.cmd.hasOptionById(id) && !selected)
             {
                 // get the value from the properties
                 String value = properties.getProperty(option);
 
-                if (opt.hasArg())
-                {
-                    if (opt.getValues() == null || opt.getValues().length == 0)
-                    {
-                        opt.addValueForProcessing(value);
-                    }
-                }
-                else if (!("yes".equalsIgnoreCase(value)
+                if (!opt.hasArg() && !("yes".equalsIgnoreCase(value)
                         || "true".equalsIgnoreCase(value)
                         || "1".equalsIgnoreCase(value)))
                 {
@@ -113,8 +426,13 @@ public class DefaultParser implements CommandLineParser
                     continue;
                 }
 
-                handleOption(opt);
-                currentOption = null;
+                handleOption(ctx, id);
+                if (opt.hasArg())
+                {
+                    // the option was not on the command line, so it has no value yet
+                    ctx.addValueForProcessing(value);
+                }
+                ctx.currentOption = null;
             }
         }
     }
@@ -126,82 +444,153 @@ public class DefaultParser implements CommandLineParser
      * @throws MissingOptionException if any of the required Options
      * are not present.
      */
-    private void checkRequiredOptions() throws MissingOptionException
+    private void checkRequiredOptions(ParseContext ctx) throws MissingOptionException
     {
         // if there are required options that have not been processed
-        if (!expectedOpts.isEmpty())
+        if (!ctx.expectedOpts.isEmpty())
         {
-            throw new MissingOptionException(expectedOpts);
+            throw new MissingOptionException(ctx.expectedOpts.getMissing());
         }
     }
 
-    private void checkRequiredArgs() throws ParseException
+    private void checkRequiredArgs(ParseContext ctx) throws ParseException
     {
-        if (currentOption != null && currentOption.requiresArg())
+        if (ctx.currentOption != null && ctx.currentOption.requiresArg(ctx.getLastValueCount()))
         {
-            throw new MissingArgumentException(currentOption);
+            throw new MissingArgumentException(ctx.currentOption);
         }
     }
 
-    private void handleToken(String token) throws ParseException
+    private void handleToken(ParseContext ctx, String token) throws ParseException
     {
-        currentToken = token;
+        if (expandResponseFiles && !ctx.skipParsing && token.length() > 1 && token.charAt(0) == '@')
+        {
+            handleResponseFile(ctx, token.substring(1));
+            return;
+        }
 
-        if (skipParsing)
+        ctx.currentToken = token;
+        if (ctx.listener != null)
         {
-            cmd.addArg(token);
+            ctx.tokenCount++;
+        }
+
+        if (ctx.skipParsing)
+        {
+            ctx.addArg(token);
         }
         else if ("--".equals(token))
         {
-            skipParsing = true;
+            ctx.skipParsing = true;
         }
-        else if (currentOption != null && currentOption.acceptsArg() && isArgument(token))
+        else if (ctx.currentOption != null && ctx.currentOption.acceptsArg(ctx.getLastValueCount())
+                && isArgument(ctx, token))
         {
-            currentOption.addValueForProcessing(Util.stripLeadingAndTrailingQuotes(token));
+            if (isQuoted(token))
+            {
+                ctx.addValueForProcessing(token, 1, token.length() - 1);
+            }
+            else
+            {
+                ctx.addValueForProcessing(token);
+            }
         }
         else if (token.startsWith("--"))
         {
-            handleLongOption(token);
+            handleLongOption(ctx, token);
         }
         else if (token.startsWith("-") && !"-".equals(token))
         {
-            handleShortAndLongOption(token);
+            handleShortAndLongOption(ctx, token);
         }
         else
         {
-            handleUnknownToken(token);
+            handleUnknownToken(ctx, token);
         }
 
-        if (currentOption != null && !currentOption.acceptsArg())
+        if (ctx.currentOption != null && !ctx.currentOption.acceptsArg(ctx.getLastValueCount()))
         {
-            currentOption = null;
+            ctx.currentOption = null;
         }
     }
 
-    private boolean isArgument(String token)
+    private void handleResponseFile(ParseContext ctx, String name) throws ParseException
     {
-        return !isOption(token) || isNegativeNumber(token);
-    }
+        if (ctx.responseFiles == null)
+        {
+            ctx.responseFiles = new ArrayDeque<Path>(2);
+        }
 
-    private boolean isNegativeNumber(String token)
-    {
+        Path file;
+        ArgumentTokenizer tokenizer;
         try
         {
-            Double.parseDouble(token);
-            return true;
+            file = Paths.get(name).toRealPath();
+
+            // a file including itself, directly or not, would be expanded forever
+            if (ctx.responseFiles.contains(file))
+            {
+                throw new ParseException("Recursive response file: " + name);
+            }
+
+            tokenizer = new ArgumentTokenizer(MappedFileReader.open(file));
         }
-        catch (NumberFormatException e)
+        catch (IOException | InvalidPathException e)
         {
-            return false;
+            throw responseFileException(name, e);
+        }
+
+        ctx.responseFiles.push(file);
+        try
+        {
+            while (tokenizer.hasNext())
+            {
+                handleToken(ctx, tokenizer.next());
+            }
+        }
+        catch (UncheckedIOException e)
+        {
+            throw responseFileException(name, e.getCause());
+        }
+        finally
+        {
+            ctx.responseFiles.pop();
         }
     }
 
-    private boolean isOption(String token)
+    private static ParseException responseFileException(String name, Exception cause)
     {
-        return isLongOption(token) || isShortOption(token);
+        ParseException e = new ParseException("Unable to read the response file " + name + ": " + cause);
+        e.initCause(cause);
+        return e;
     }
 
-    private boolean isShortOption(String token)
+    private boolean isArgument(ParseContext ctx, String token)
+    {
+        return !isOption(ctx, token) || isNegativeNumber(token);
+    }
+
+    /**
+     * Tells if the token is enclosed in double quotes with none inside, the
+     * quotes {@link Util#stripLeadingAndTrailingQuotes(String)} would remove.
+     */
+    private static boolean isQuoted(String token)
+    {
+        int length = token.length();
+        return length > 1 && token.charAt(0) == '"' && token.indexOf('"', 1) == length - 1;
+    }
+
+    private boolean isNegativeNumber(String token)
+    {
+        return NumberLexer.isNumber(token);
+    }
+
+    private boolean isOption(ParseContext ctx, String token)
+    {
+        return isLongOption(ctx, token) || isShortOption(ctx, token);
+    }
+
+    private boolean isShortOption(ParseContext ctx, String token)
     {
         // short options (-S, -SV, -S=V, -SV1=V2, -S1S2)
         if (!token.startsWith("-") || token.length() == 1)
@@ -209,33 +598,33 @@ public class DefaultParser implements CommandLineParser
             return false;
         }
 
-        // remove leading "-" and "=value"
-        int pos = token.indexOf("=");
-        String optName = pos == -1 ? token.substring(1) : token.substring(1, pos);
-        if (options.hasShortOption(optName))
+        // ignore the leading "-" and "=value"
+        int pos = token.indexOf('=');
+        int length = pos == -1 ? token.length() - 1 : pos - 1;
+        if (ctx.options.hasShortOption(token, 1, length))
         {
             return true;
         }
         // check for several concatenated short options
-        return optName.length() > 0 && options.hasShortOption(String.valueOf(optName.charAt(0)));
+        return length > 0 && ctx.options.hasShortOption(token, 1, 1);
     }
 
-    private boolean isLongOption(String token)
+    private boolean isLongOption(ParseContext ctx, String token)
     {
         if (!token.startsWith("-") || token.length() == 1)
         {
             return false;
         }
 
-        int pos = token.indexOf("=");
-        String t = pos == -1 ? token : token.substring(0, pos);
+        int pos = token.indexOf('=');
+        int length = pos == -1 ? token.length() : pos;
 
-        if (!options.getMatchingOptions(t).isEmpty())
+        if (ctx.options.hasMatchingOptions(token, 0, length))
         {
             // long or partial long options (--L, -L, --L=V, -L=V, --l, --l=V)
             return true;
         }
-        else if (getLongPrefix(token) != null && !token.startsWith("--"))
+        else if (getLongPrefix(ctx, token, 0) != null && !token.startsWith("--"))
         {
             // -LV
             return true;
@@ -244,266 +633,242 @@ public class DefaultParser implements CommandLineParser
         return false;
     }
 
-    private void handleUnknownToken(String token) throws ParseException
+    private void handleUnknownToken(ParseContext ctx, String token) throws ParseException
     {
-        if (token.startsWith("-") && token.length() > 1 && !stopAtNonOption)
+        if (token.startsWith("-") && token.length() > 1 && !ctx.stopAtNonOption)
         {
             throw new UnrecognizedOptionException("Unrecognized option: " + token, token);
         }
 
-        cmd.addArg(token);
-        if (stopAtNonOption)
+        ctx.addArg(token);
+        if (ctx.stopAtNonOption)
         {
-            skipParsing = true;
+            ctx.skipParsing = true;
         }
     }
 
-    private void handleLongOption(String token) throws ParseException
+    private void handleLongOption(ParseContext ctx, String token) throws ParseException
     {
         if (token.indexOf('=') == -1)
         {
-            handleLongOptionWithoutEqual(token);
+            handleLongOptionWithoutEqual(ctx, token);
         }
         else
         {
-            handleLongOptionWithEqual(token);
+            handleLongOptionWithEqual(ctx, token);
         }
     }
 
-    private void handleLongOptionWithoutEqual(String token) throws ParseException
+    private void handleLongOptionWithoutEqual(ParseContext ctx, String token) throws ParseException
     {
-        List<String> matchingOpts = options.getMatchingOptions(token);
-        if (matchingOpts.isEmpty())
+        int id = ctx.options.getMatchingOptionId(token, 0, token.length());
+        if (id != -1)
         {
-            handleUnknownToken(currentToken);
+            handleOption(ctx, id);
         }
-        else if (matchingOpts.size() > 1)
+        else if (!ctx.options.hasMatchingOptions(token, 0, token.length()))
         {
-            throw new AmbiguousOptionException(token, matchingOpts);
+            handleUnknownToken(ctx, ctx.currentToken);
         }
         else
         {
-            handleOption(options.getOption(matchingOpts.get(0)));
+            throw new AmbiguousOptionException(token, ctx.options.getMatchingOptions(token));
         }
     }
 
-    private void handleLongOptionWithEqual(String token) throws ParseException
+    private void handleLongOptionWithEqual(ParseContext ctx, String token) throws ParseException
     {
         int pos = token.indexOf('=');
 
-        String value = token.substring(pos + 1);
-
-        String opt = token.substring(0, pos);
-
-        List<String> matchingOpts = options.getMatchingOptions(opt);
-        if (matchingOpts.isEmpty())
-        {
-            handleUnknownToken(currentToken);
-        }
-        else if (matchingOpts.size() > 1)
-        {
-            throw new AmbiguousOptionException(opt, matchingOpts);
-        }
-        else
+        int id = ctx.options.getMatchingOptionId(token, 0, pos);
+        if (id != -1)
         {
-            Option option = options.getOption(matchingOpts.get(0));
-
-            if (option.acceptsArg())
+            if (ctx.options.getOption(id).acceptsArg(0))
             {
-                handleOption(option);
-                currentOption.addValueForProcessing(value);
-                currentOption = null;
+                handleOption(ctx, id);
+                ctx.addValueForProcessing(token, pos + 1, token.length());
+                ctx.currentOption = null;
             }
             else
             {
-                handleUnknownToken(currentToken);
+                handleUnknownToken(ctx, ctx.currentToken);
             }
         }
+        else if (!ctx.options.hasMatchingOptions(token, 0, pos))
+        {
+            handleUnknownToken(ctx, ctx.currentToken);
+        }
+        else
+        {
+            String opt = token.substring(0, pos);
+            throw new AmbiguousOptionException(opt, ctx.options.getMatchingOptions(opt));
+        }
     }
 
-    private void handleShortAndLongOption(String token) throws ParseException
+    private void handleShortAndLongOption(ParseContext ctx, String token) throws ParseException
     {
-        String t = Util.stripLeadingHyphens(token);
+        // the name starts after the single leading hyphen
+        int length = token.length() - 1;
 
-        int pos = t.indexOf('=');
+        int pos = token.indexOf('=');
 
-        if (t.length() == 1)
+        if (length == 1)
         {
             // -S
-            if (options.hasShortOption(t))
+            int id = ctx.options.getShortOptionId(token, 1, 1);
+            if (id != -1)
             {
-                handleOption(options.getOption(t));
+                handleOption(ctx, id);
             }
             else
             {
-                handleUnknownToken(token);
+                handleUnknownToken(ctx, token);
             }
         }
         else if (pos == -1)
         {
             // no equal sign found (-xxx)
-            if (options.hasShortOption(t))
+            int id = ctx.options.getShortOptionId(token, 1, length);
+            if (id != -1)
             {
-                handleOption(options.getOption(t));
+                handleOption(ctx, id);
             }
-            else if (!options.getMatchingOptions(t).isEmpty())
+            else if (ctx.options.hasMatchingOptions(token, 1, length))
             {
                 // -L or -l
-                handleLongOptionWithoutEqual(token);
+                handleLongOptionWithoutEqual(ctx, token);
             }
             else
             {
                 // look for a long prefix (-Xmx512m)
-                String opt = getLongPrefix(t);
+                String opt = getLongPrefix(ctx, token, 1);
+                int prefixId = opt != null ? ctx.options.getOptionId(opt) : -1;
 
-                if (opt != null && options.getOption(opt).acceptsArg())
+                if (prefixId != -1 && ctx.options.getOption(prefixId).acceptsArg(0))
                 {
-                    handleOption(options.getOption(opt));
-                    currentOption.addValueForProcessing(t.substring(opt.length()));
-                    currentOption = null;
+                    handleOption(ctx, prefixId);
+                    ctx.addValueForProcessing(token, 1 + opt.length(), token.length());
+                    ctx.currentOption = null;
                 }
-                else if (isJavaProperty(t))
+                else if (isJavaProperty(ctx, token))
                 {
                     // -SV1 (-Dflag)
-                    handleOption(options.getOption(t.substring(0, 1)));
-                    currentOption.addValueForProcessing(t.substring(1));
-                    currentOption = null;
+                    handleOption(ctx, ctx.options.getOptionId(token, 1, 1));
+                    ctx.addValueForProcessing(token, 2, token.length());
+                    ctx.currentOption = null;
                 }
                 else
                 {
                     // -S1S2S3 or -S1S2V
-                    handleConcatenatedOptions(token);
+                    handleConcatenatedOptions(ctx, token);
                 }
             }
         }
-        else
+        else if (pos == 2)
         {
-            // equal sign found (-xxx=yyy)
-            String opt = t.substring(0, pos);
-            String value = t.substring(pos + 1);
-
-            if (opt.length() == 1)
+            // -S=V
+            int id = ctx.options.getOptionId(token, 1, 1);
+            if (id != -1 && ctx.options.getOption(id).acceptsArg(0))
             {
-                // -S=V
-                Option option = options.getOption(opt);
-                if (option != null && option.acceptsArg())
-                {
-                    handleOption(option);
-                    currentOption.addValueForProcessing(value);
-                    currentOption = null;
-                }
-                else
-                {
-                    handleUnknownToken(token);
-                }
-            }
-            else if (isJavaProperty(opt))
-            {
-                // -SV1=V2 (-Dkey=value)
-                handleOption(options.getOption(opt.substring(0, 1)));
-                currentOption.addValueForProcessing(opt.substring(1));
-                currentOption.addValueForProcessing(value);
-                currentOption = null;
+                handleOption(ctx, id);
+                ctx.addValueForProcessing(token, pos + 1, token.length());
+                ctx.currentOption = null;
             }
             else
             {
-                // -L=V or -l=V
-                handleLongOptionWithEqual(token);
+                handleUnknownToken(ctx, token);
             }
         }
+        else if (pos > 2 && isJavaProperty(ctx, token))
+        {
+            // -SV1=V2 (-Dkey=value)
+            handleOption(ctx, ctx.options.getOptionId(token, 1, 1));
+            ctx.addValueForProcessing(token, 2, pos);
+            ctx.addValueForProcessing(token, pos + 1, token.length());
+            ctx.currentOption = null;
+        }
+        else
+        {
+            // -L=V or -l=V
+            handleLongOptionWithEqual(ctx, token);
+        }
     }
 
-    private String getLongPrefix(String token)
+    /**
+     * Returns the longest long option starting the token after its hyphens,
+     * leaving a value of at least 2 characters (-Xmx512m).
+     *
+     * @param offset the index of the first character after the hyphens
+     */
+    private String getLongPrefix(ParseContext ctx, String token, int offset)
     {
-        String t = Util.stripLeadingHyphens(token);
-
-        int i;
-        String opt = null;
-        for (i = t.length() - 2; i > 1; i--)
-        {
-            String prefix = t.substring(0, i);
-            if (options.hasLongOption(prefix))
-            {
-                opt = prefix;
-                break;
-            }
-        }
-        
-        return opt;
+        return ctx.options.getLongPrefix(token, offset, token.length() - offset, 2);
     }
 
-    private boolean isJavaProperty(String token)
+    /**
+     * Tells if the first character after the hyphen of the token is an
+     * option taking several values (-Dkey=value).
+     */
+    private boolean isJavaProperty(ParseContext ctx, String token)
     {
-        String opt = token.substring(0, 1);
-        Option option = options.getOption(opt);
+        Option option = ctx.options.getOption(token, 1, 1);
 
         return option != null && (option.getArgs() >= 2 || option.getArgs() == Option.UNLIMITED_VALUES);
     }
 
-    private void handleOption(Option option) throws ParseException
+    private void handleOption(ParseContext ctx, int id) throws ParseException
     {
-        // check the previous option before handling the next one
-        checkRequiredArgs();
+        Option option = ctx.options.getOption(id);
 
-        option = (Option) option.clone();
+        // check the previous option before handling the next one
+        checkRequiredArgs(ctx);
 
-        updateRequiredOptions(option);
+        updateRequiredOptions(ctx, id);
 
-        cmd.addOption(option);
+        // record the occurrence by id, its values are kept by the command line
+        ctx.addOption(id);
 
         if (option.hasArg())
         {
-            currentOption = option;
+            ctx.currentOption = option;
         }
         else
         {
-            currentOption = null;
+            ctx.currentOption = null;
         }
     }
 
-    private void updateRequiredOptions(Option option) throws AlreadySelectedException
+    private void updateRequiredOptions(ParseContext ctx, int id) throws AlreadySelectedException
     {
-        if (option.isRequired())
-        {
-            expectedOpts.remove(option.getKey());
-        }
-
         // if the option is in an OptionGroup make that option the selected option of the group
-        if (options.getOptionGroup(option) != null)
-        {
-            OptionGroup group = options.getOptionGroup(option);
+        ctx.groupSelection.select(id);
 
-            if (group.isRequired())
-            {
-                expectedOpts.remove(group);
-            }
-
-            group.setSelected(option);
-        }
+        // the option and its group are no longer missing
+        ctx.expectedOpts.found(id);
     }
 
-    protected void handleConcatenatedOptions(String token) throws ParseException
+    private void handleConcatenatedOptions(ParseContext ctx, String token) throws ParseException
     {
         for (int i = 1; i < token.length(); i++)
         {
-            String ch = String.valueOf(token.charAt(i));
+            int id = ctx.options.getOptionId(token, i, 1);
 
-            if (options.hasOption(ch))
+            if (id != -1)
             {
-                handleOption(options.getOption(ch));
+                handleOption(ctx, id);
 
-                if (currentOption != null && token.length() != i + 1)
+                if (ctx.currentOption != null && token.length() != i + 1)
                 {
                     // add the trail as an argument of the option
-                    currentOption.addValueForProcessing(token.substring(i + 1));
+                    ctx.addValueForProcessing(token, i + 1, token.length());
                     break;
                 }
             }
             else
             {
-                handleUnknownToken(stopAtNonOption && i > 1 ? token.substring(i) : token);
+                handleUnknownToken(ctx, ctx.stopAtNonOption && i > 1 ? token.substring(i) : token);
                 break;
             }
         }
     }
-}
\ No newline at end of file
+}
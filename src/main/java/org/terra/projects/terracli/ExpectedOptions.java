@@ -0,0 +1,65 @@
+package org.terra.projects.terracli;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The required options and groups not found yet during a single parse.
+ * <p>
+ * Each required entry is a bit, set from the template of the
+ * {@link CompiledOptions} table and cleared in constant time when one of its
+ * options is found. The list of the missing entries is only built when the
+ * parse fails.
+ */
+final class ExpectedOptions
+{
+    private final CompiledOptions options;
+
+    /** the positions in the required entries of the options and groups not found yet */
+    private final BitSet missing;
+
+    ExpectedOptions(CompiledOptions options)
+    {
+        this.options = options;
+        this.missing = options.getRequiredEntries();
+    }
+
+    /**
+     * Marks the option with the specified id, and its group, as found.
+     */
+    void found(int id)
+    {
+        int position = options.getRequiredPosition(id);
+        if (position != -1)
+        {
+            missing.clear(position);
+        }
+
+        position = options.getRequiredGroupPosition(id);
+        if (position != -1)
+        {
+            missing.clear(position);
+        }
+    }
+
+    boolean isEmpty()
+    {
+        return missing.isEmpty();
+    }
+
+    /**
+     * Returns the keys of the required options and the required groups not
+     * found, in the order they were added to the options.
+     */
+    List<Object> getMissing()
+    {
+        List<Object> required = options.getRequiredOptions();
+        List<Object> result = new ArrayList<Object>(missing.cardinality());
+        for (int i = missing.nextSetBit(0); i >= 0; i = missing.nextSetBit(i + 1))
+        {
+            result.add(required.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package org.terra.projects.terracli;
+
+/**
+ * The option selected in each {@link OptionGroup} during a single parse.
+ * <p>
+ * Selections are indexed by the group ids of a {@link CompiledOptions}
+ * table, so parsing never writes to the shared <code>OptionGroup</code>
+ * instances. Options are mapped to their group through an array indexed by
+ * option id, so neither a selection nor a membership check involves a map.
+ */
+final class GroupSelection
+{
+    private static final String[] NO_GROUPS = new String[0];
+
+    private final CompiledOptions options;
+
+    /** key of the selected option, by group id */
+    private final String[] selected;
+
+    GroupSelection(CompiledOptions options)
+    {
+        this.options = options;
+        this.selected = options.getGroupCount() == 0 ? NO_GROUPS : new String[options.getGroupCount()];
+    }
+
+    /**
+     * Makes the option the selected option of its group, if it has one.
+     *
+     * @param id the id of the option found on the command line
+     * @return the group of the option, or <code>null</code> if the option is not part of a group
+     * @throws AlreadySelectedException if another option of the group has already been selected
+     */
+    OptionGroup select(int id) throws AlreadySelectedException
+    {
+        int group = options.getGroupId(id);
+        if (group == -1)
+        {
+            return null;
+        }
+
+        Option option = options.getOption(id);
+        if (selected[group] != null && !selected[group].equals(option.getKey()))
+        {
+            throw new AlreadySelectedException(options.getGroup(group), option, selected[group]);
+        }
+
+        selected[group] = option.getKey();
+        return options.getGroup(group);
+    }
+
+    /**
+     * Tells if an option of the group of the option with the specified id has
+     * already been selected.
+     */
+    boolean isSelected(int id)
+    {
+        int group = options.getGroupId(id);
+        return group != -1 && selected[group] != null;
+    }
+}
@@ -0,0 +1,95 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latencies into a histogram of power of two buckets, from which
+ * the average, the maximum and approximate percentiles are read.
+ * <p>
+ * Recording takes constant time and never allocates; a percentile is
+ * reported as the upper bound of its bucket, so it is at most twice the
+ * exact value. The timer may be shared between threads.
+ */
+public final class LatencyTimer
+{
+    /** the latencies in nanoseconds */
+    private final Log2Histogram histogram = new Log2Histogram();
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records the time elapsed since the specified {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos)
+    {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        histogram.record(nanos);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getTotal(TimeUnit unit)
+    {
+        return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getAverage(TimeUnit unit)
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : unit.convert(totalNanos.sum() / n, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit)
+    {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an upper bound of the latency below which the specified
+     * fraction of the recorded latencies fall.
+     *
+     * @param fraction the fraction, between 0 and 1
+     */
+    public long getPercentile(double fraction, TimeUnit unit)
+    {
+        return unit.convert(histogram.getPercentile(fraction, maxNanos.get()), TimeUnit.NANOSECONDS);
+    }
+
+    public void reset()
+    {
+        histogram.reset();
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + getCount()
+                + ", average=" + getAverage(TimeUnit.MICROSECONDS) + "us"
+                + ", p50=" + getPercentile(0.5, TimeUnit.MICROSECONDS) + "us"
+                + ", p99=" + getPercentile(0.99, TimeUnit.MICROSECONDS) + "us"
+                + ", max=" + getMax(TimeUnit.MICROSECONDS) + "us";
+    }
+}
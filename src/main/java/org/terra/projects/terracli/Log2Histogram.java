@@ -0,0 +1,61 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts non negative values in power of two buckets, shared by
+ * {@link LatencyTimer} and {@link ParseMetrics}. Safe for concurrent use.
+ */
+final class Log2Histogram
+{
+    /** bucket i counts the values of i significant bits, up to 2^i - 1 */
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    void record(long value)
+    {
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * Returns an upper bound of the value below which the specified fraction
+     * of the recorded values fall, or 0 if none was recorded.
+     *
+     * @param fraction the fraction, between 0 and 1
+     * @param max the largest value recorded, bounding the result
+     */
+    long getPercentile(double fraction, long max)
+    {
+        long n = 0;
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(fraction * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0)
+            {
+                long bound = i == 0 ? 0 : i == 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(bound, max);
+            }
+        }
+        return max;
+    }
+
+    void reset()
+    {
+        for (int i = 0; i < buckets.length(); i++)
+        {
+            buckets.set(i, 0);
+        }
+    }
+}
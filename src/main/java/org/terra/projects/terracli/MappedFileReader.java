@@ -0,0 +1,93 @@
+package org.terra.projects.terracli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the characters of a UTF-8 file, decoding the bytes only as the
+ * characters are requested. Small files are read to the heap at once, larger
+ * ones through a read only memory mapping so they are never copied as a whole.
+ * A mapping is released when the reader is garbage collected, not on close,
+ * and may keep the file from being deleted on some platforms until then.
+ */
+final class MappedFileReader extends Reader
+{
+    /**
+     * Files up to this size are read rather than mapped, a mapping costs more
+     * to set up than copying a few pages.
+     */
+    private static final long MAP_THRESHOLD = 1 << 16;
+
+    private final ByteBuffer bytes;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    private boolean flushed;
+
+    private MappedFileReader(ByteBuffer bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    static MappedFileReader open(Path file) throws IOException
+    {
+        if (Files.size(file) <= MAP_THRESHOLD)
+        {
+            return new MappedFileReader(ByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("File too large to be mapped: " + file);
+            }
+
+            // the mapping stays valid once the channel is closed
+            return new MappedFileReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException
+    {
+        if (length == 0)
+        {
+            return 0;
+        }
+        if (flushed)
+        {
+            return -1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError())
+        {
+            result.throwException();
+        }
+        if (!bytes.hasRemaining() && !flushed && out.hasRemaining())
+        {
+            decoder.flush(out);
+            flushed = true;
+        }
+
+        int count = out.position() - offset;
+        return count == 0 && !bytes.hasRemaining() ? -1 : count;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,183 @@
+package org.terra.projects.terracli;
+
+/**
+ * Recognizes the strings accepted by {@link Double#parseDouble(String)}
+ * without parsing them, allocating or throwing.
+ * <p>
+ * The accepted forms are, surrounded by optional whitespace and preceded by
+ * an optional sign: <code>NaN</code>, <code>Infinity</code>, decimal numbers
+ * with an optional fraction and exponent, and hexadecimal numbers with a
+ * mandatory binary exponent (<code>0x1.8p3</code>). Decimal and hexadecimal
+ * numbers may end with a <code>f</code>, <code>F</code>, <code>d</code> or
+ * <code>D</code> type suffix.
+ */
+final class NumberLexer
+{
+    private NumberLexer()
+    {
+    }
+
+    static boolean isNumber(CharSequence s)
+    {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        int i = 0;
+        while (i < end && s.charAt(i) <= ' ')
+        {
+            i++;
+        }
+
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+        {
+            i++;
+        }
+        if (i == end)
+        {
+            return false;
+        }
+
+        char c = s.charAt(i);
+        if (c == 'N')
+        {
+            return matches(s, i, end, "NaN");
+        }
+        if (c == 'I')
+        {
+            return matches(s, i, end, "Infinity");
+        }
+
+        if (c == '0' && i + 1 < end && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X'))
+        {
+            return isHexNumber(s, i + 2, end);
+        }
+
+        return isDecimalNumber(s, i, end);
+    }
+
+    private static boolean matches(CharSequence s, int start, int end, String word)
+    {
+        if (end - start != word.length())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++)
+        {
+            if (s.charAt(start + i) != word.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDecimalNumber(CharSequence s, int i, int end)
+    {
+        int digits = 0;
+        while (i < end && isDigit(s.charAt(i)))
+        {
+            i++;
+            digits++;
+        }
+
+        if (i < end && s.charAt(i) == '.')
+        {
+            i++;
+            while (i < end && isDigit(s.charAt(i)))
+            {
+                i++;
+                digits++;
+            }
+        }
+
+        if (digits == 0)
+        {
+            return false;
+        }
+
+        if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E'))
+        {
+            i = skipExponent(s, i + 1, end);
+            if (i < 0)
+            {
+                return false;
+            }
+        }
+
+        return isEndOfNumber(s, i, end);
+    }
+
+    private static boolean isHexNumber(CharSequence s, int i, int end)
+    {
+        int digits = 0;
+        while (i < end && isHexDigit(s.charAt(i)))
+        {
+            i++;
+            digits++;
+        }
+
+        if (i < end && s.charAt(i) == '.')
+        {
+            i++;
+            while (i < end && isHexDigit(s.charAt(i)))
+            {
+                i++;
+                digits++;
+            }
+        }
+
+        // the binary exponent is mandatory for hexadecimal numbers
+        if (digits == 0 || i == end || (s.charAt(i) != 'p' && s.charAt(i) != 'P'))
+        {
+            return false;
+        }
+
+        i = skipExponent(s, i + 1, end);
+
+        return i >= 0 && isEndOfNumber(s, i, end);
+    }
+
+    /**
+     * Skips the signed decimal digits of an exponent.
+     *
+     * @return the index following the exponent, or -1 if it has no digits
+     */
+    private static int skipExponent(CharSequence s, int i, int end)
+    {
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+        {
+            i++;
+        }
+
+        int start = i;
+        while (i < end && isDigit(s.charAt(i)))
+        {
+            i++;
+        }
+
+        return i == start ? -1 : i;
+    }
+
+    private static boolean isEndOfNumber(CharSequence s, int i, int end)
+    {
+        if (i < end && "fFdD".indexOf(s.charAt(i)) != -1)
+        {
+            i++;
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c)
+    {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
@@ -2,7 +2,6 @@ package org.terra.projects.terracli;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class Option implements Cloneable, Serializable {
@@ -150,6 +149,10 @@ public class Option implements Cloneable, Serializable {
         this.numOfArgs = num;
     }
 
+    public int getArgs() {
+        return numOfArgs;
+    }
+
     public void setValueSeperator(char seperator) {
         this.valueSeperator = seperator;
     }
@@ -159,29 +162,88 @@ public class Option implements Cloneable, Serializable {
     }
 
     public void addValueForProcessing(String value) {
+        addValueForProcessing(value, 0, value.length(), (token, begin, end) -> values.add(token.substring(begin, end)),
+                values.size());
+    }
+
+    /**
+     * Processes a value for an occurrence of this option whose values are
+     * stored outside of it, so the definition itself is never modified.
+     *
+     * @param token the argument holding the value
+     * @param begin the index of the first character of the value in the argument
+     * @param end the index following the last character of the value
+     * @param sink the storage the processed values are passed to
+     * @param count the number of values the occurrence already holds
+     */
+    void addValueForProcessing(String token, int begin, int end, ValueSink sink, int count) {
         if (numOfArgs == UNINITIALIZED) {
             throw new RuntimeException("NO_ARGS_ALLOWED");
         }
 
-        processValue(value);
+        processValue(token, begin, end, sink, count);
     }
 
-    private void processValue(String value) {
+    /**
+     * Splits the value on the value separator, if any, passing each part to
+     * the sink. Once the option can only take one more value, the remainder
+     * is kept whole, separators included. Unlike String.split, empty parts are
+     * kept, trailing ones too: <code>k=</code> gives "k" and "". A value
+     * without any separator is passed on whole.
+     */
+    private void processValue(String token, int begin, int end, ValueSink sink, int count) {
         if (hasValueSeperator()) {
-            add(value.trim().split(Character.toString(this.valueSeperator)));
+            // trim the value as String.trim does
+            while (begin < end && token.charAt(begin) <= ' ') {
+                begin++;
+            }
+            while (end > begin && token.charAt(end - 1) <= ' ') {
+                end--;
+            }
+
+            int index = token.indexOf(valueSeperator, begin);
+            while (index != -1 && index < end && count != numOfArgs - 1) {
+                add(token, begin, index, sink, count++);
+                begin = index + 1;
+                index = token.indexOf(valueSeperator, begin);
+            }
         }
+
+        add(token, begin, end, sink, count);
     }
 
     boolean acceptsArg() {
-        return (hasArg() || hasArgs() || hasArgOptional()) && (numOfArgs <= 0 || values.size() < numOfArgs);
+        return acceptsArg(values.size());
+    }
+
+    /**
+     * Tells if an occurrence holding <code>count</code> values can take another one.
+     */
+    boolean acceptsArg(int count) {
+        return (hasArg() || hasArgs() || hasArgOptional()) && (numOfArgs <= 0 || count < numOfArgs);
+    }
+
+    /**
+     * Tells if an occurrence holding <code>count</code> values still needs one.
+     */
+    boolean requiresArg(int count) {
+        if (argOptional) {
+            return false;
+        }
+
+        if (numOfArgs == UNLIMITED_VALUES) {
+            return count == 0;
+        }
+
+        return acceptsArg(count);
     }
 
-    private void add(String[] values) {
-        if (!acceptsArg()) {
+    private void add(String token, int begin, int end, ValueSink sink, int count) {
+        if (!acceptsArg(count)) {
             throw new RuntimeException("Cannot add value, list full.");
         }
 
-        this.values.addAll(Arrays.asList(values));
+        sink.addValue(token, begin, end);
     }
 
     public String getValue(String defaultValue) {
@@ -261,7 +323,7 @@ public class Option implements Cloneable, Serializable {
     }
 
     @Override
-    public Object clone() throws CloneNotSupportedException {
+    public Object clone() {
         try {
             Option option = (Option) super.clone();
             option.values = new ArrayList<String>(values);
@@ -30,6 +30,10 @@ public class OptionGroup implements Serializable{
         return optionMap.values();
     }
 	
+	/**
+	 * Sets the selected option of this group. The parsers track selections
+	 * per parse and leave this value untouched, so groups can be shared.
+	 */
 	public void setSelected(Option option) throws AlreadySelectedException {
         if (option == null) {
             selected = null;
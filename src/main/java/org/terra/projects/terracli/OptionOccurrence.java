@@ -0,0 +1,85 @@
+package org.terra.projects.terracli;
+
+import java.util.List;
+
+/**
+ * A view of one occurrence of an option in a {@link CommandLine}: the
+ * option definition and the values given to that occurrence. The value
+ * accessors behave like their counterparts in {@link Option}.
+ */
+public final class OptionOccurrence
+{
+    private final CommandLine cmd;
+
+    private final int index;
+
+    OptionOccurrence(CommandLine cmd, int index)
+    {
+        this.cmd = cmd;
+        this.index = index;
+    }
+
+    /**
+     * Returns the definition of the option; it holds no parsed values.
+     */
+    public Option getOption()
+    {
+        return cmd.getOption(index);
+    }
+
+    public String getKey()
+    {
+        return getOption().getKey();
+    }
+
+    public String getValue()
+    {
+        List<String> values = getValuesList();
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    public String getValue(int index)
+    {
+        List<String> values = getValuesList();
+        return values.isEmpty() ? null : values.get(index);
+    }
+
+    public String getValue(String defaultValue)
+    {
+        String value = getValue();
+        return value != null ? value : defaultValue;
+    }
+
+    public String[] getValues()
+    {
+        List<String> values = getValuesList();
+        return values.isEmpty() ? null : values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Returns the first value converted to the type of the option by
+     * {@link TypeHandler}, or <code>null</code> if there is no value. The
+     * conversion is done once.
+     *
+     * @throws ParseException if the value cannot be converted
+     */
+    public Object getParsedValue() throws ParseException
+    {
+        return getValuesList().isEmpty() ? null
+                : cmd.getParsedValue(cmd.getValueStart(index), CommandLine.getType(getOption()));
+    }
+
+    /**
+     * Returns the values of this occurrence as an unmodifiable list.
+     */
+    public List<String> getValuesList()
+    {
+        return cmd.getValues(index);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getOption() + " " + getValuesList();
+    }
+}
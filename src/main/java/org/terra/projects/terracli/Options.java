@@ -4,22 +4,64 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 public class Options implements Serializable{
 
 	private static final long serialVersionUID = 1L;
 	
-	private final Map<String, Option> longOptions = new LinkedHashMap<String, Option>();
-	private final Map<String, Option> shortOptions = new LinkedHashMap<String, Option>();
+	private final Map<String, Option> longOptions;
+	private final Map<String, Option> shortOptions;
 	
-	private final List<Object> requiredOpts = new ArrayList<Object>();
+	/** the keys of the required options and the required groups, in insertion order */
+	private final Set<Object> requiredOpts = new LinkedHashSet<Object>();
+
+    private final Map<String, OptionGroup> optionGroups;
+
+    private transient volatile CompiledOptions compiled;
+
+    public Options() {
+        longOptions = new LinkedHashMap<String, Option>();
+        shortOptions = new LinkedHashMap<String, Option>();
+        optionGroups = new LinkedHashMap<String, OptionGroup>();
+    }
+
+    /**
+     * Creates options holding the definitions of a compiled table, which is
+     * kept as their compiled form.
+     *
+     * @see OptionsSnapshot
+     */
+    Options(CompiledOptions table) {
+        // sized for the table, so that the maps never grow
+        longOptions = new LinkedHashMap<String, Option>(capacity(table.getLongOptionCount()));
+        shortOptions = new LinkedHashMap<String, Option>(capacity(table.getOptionCount()));
+        optionGroups = new LinkedHashMap<String, OptionGroup>();
+
+        for (int id = 0; id < table.getOptionCount(); id++) {
+            Option option = table.getOption(id);
+            shortOptions.put(option.getKey(), option);
+
+            OptionGroup group = table.getOptionGroup(id);
+            if (group != null)
+                optionGroups.put(option.getKey(), group);
+        }
+        for (int position = 0; position < table.getLongOptionCount(); position++) {
+            Option option = table.getOption(table.getLongOptionId(position));
+            longOptions.put(option.getLongOpt(), option);
+        }
+        requiredOpts.addAll(table.getRequiredOptions());
+        compiled = table;
+    }
 
-    private final Map<String, OptionGroup> optionGroups = new LinkedHashMap<String, OptionGroup>();
+    private static int capacity(int size) {
+        return size * 4 / 3 + 1;
+    }
 	
     public Options addOption(String option, String description) {
         addOption(option, null, false, description);
@@ -50,12 +92,13 @@ public class Options implements Serializable{
             longOptions.put(opt.getLongOpt(), opt);
 
         if (opt.isRequired()) {
-            if (requiredOpts.contains(key))
-                requiredOpts.remove(requiredOpts.indexOf(key));
+            // a redefined option moves to the end
+            requiredOpts.remove(key);
             requiredOpts.add(key);
         }
 
         shortOptions.put(key, opt);
+        compiled = null;
 
         return this;
     }
@@ -69,7 +112,7 @@ public class Options implements Serializable{
     }
 
     public List<Object> getRequiredOptions() {
-        return Collections.unmodifiableList(requiredOpts);
+        return compile().getRequiredOptions();
     }
     
     public Option getOption(String opt) {
@@ -83,20 +126,22 @@ public class Options implements Serializable{
         return longOptions.get(opt);
     }
     
+    /**
+     * Looks up the option named by a region of a character sequence, with or
+     * without leading hyphens. The region is resolved against the compiled
+     * table, so no string is created.
+     */
+    public Option getOption(CharSequence opt, int offset, int length) {
+        return compile().getOption(opt, offset, length);
+    }
+    
     public List<String> getMatchingOptions(String opt)
     {
-        opt = stripLeadingHyphens(opt);
-        
-        List<String> matchingOpts = new ArrayList<String>();
-
-        if (longOptions.keySet().contains(opt))
-            return Collections.singletonList(opt);
+        return compile().getMatchingOptions(opt);
+    }
 
-        for (String longOpt : longOptions.keySet())
-            if (longOpt.startsWith(opt))
-                matchingOpts.add(longOpt);
-        
-        return matchingOpts;
+    public List<String> getMatchingOptions(CharSequence opt, int offset, int length) {
+        return compile().getMatchingOptions(opt, offset, length);
     }
     
     public boolean hasOption(String opt) {
@@ -105,11 +150,19 @@ public class Options implements Serializable{
         return shortOptions.containsKey(opt) || longOptions.containsKey(opt);
     }
 
+    public boolean hasOption(CharSequence opt, int offset, int length) {
+        return compile().hasOption(opt, offset, length);
+    }
+
     public boolean hasLongOption(String opt) {
         opt = stripLeadingHyphens(opt);
 
         return longOptions.containsKey(opt);
     }
+
+    public boolean hasLongOption(CharSequence opt, int offset, int length) {
+        return compile().hasLongOption(opt, offset, length);
+    }
     
     public boolean hasShortOption(String opt) {
         opt = stripLeadingHyphens(opt);
@@ -117,6 +170,10 @@ public class Options implements Serializable{
         return shortOptions.containsKey(opt);
     }
 
+    public boolean hasShortOption(CharSequence opt, int offset, int length) {
+        return compile().hasShortOption(opt, offset, length);
+    }
+
     public OptionGroup getOptionGroup(Option opt) {
         return optionGroups.get(opt.getKey());
     }
@@ -158,11 +215,30 @@ public class Options implements Serializable{
 
             optionGroups.put(option.getKey(), group);
         }
+        compiled = null;
 
         return this;
     }
     
     Collection<OptionGroup> getOptionGroups() {
-        return new HashSet<OptionGroup>(optionGroups.values());
+        return compile().getOptionGroups();
+    }
+
+    /**
+     * Returns an immutable, lookup-optimized snapshot of these options. The
+     * snapshot is cached until the next call to <code>addOption</code> or
+     * <code>addOptionGroup</code>.
+     *
+     * @return the compiled option table
+     */
+    public CompiledOptions compile() {
+        CompiledOptions table = compiled;
+
+        if (table == null) {
+            table = new CompiledOptions(shortOptions, longOptions, requiredOpts, optionGroups);
+            compiled = table;
+        }
+
+        return table;
     }
 }  
@@ -0,0 +1,450 @@
+package org.terra.projects.terracli;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a compact binary form of a compiled option table, so
+ * that a short-lived process can load its options instead of building them.
+ * <p>
+ * A snapshot holds a table of the distinct strings of the options, written
+ * once and referred to by index, the definitions and groups in id order, and
+ * both prefix indexes node by node. Loading a snapshot creates the
+ * definitions and the nodes directly from these arrays: no map is rehashed,
+ * no name is sorted and nothing goes through Java serialization.
+ * <p>
+ * Snapshots are loaded from a memory mapped file or from a class path
+ * resource. They are tied to the format version they were written with,
+ * and rejected by other versions of the reader.
+ */
+public final class OptionsSnapshot
+{
+    /** "TCLI" */
+    private static final int MAGIC = 0x54434C49;
+
+    private static final int VERSION = 1;
+
+    private static final int REQUIRED = 1;
+
+    private static final int OPTIONAL_ARG = 2;
+
+    private static final int REQUIRED_OPTION = 0;
+
+    private static final int REQUIRED_GROUP = 1;
+
+    /** the types not found by name through a class loader */
+    private static final List<Class<?>> PRIMITIVES = Arrays.<Class<?>>asList(boolean.class, byte.class,
+            char.class, short.class, int.class, long.class, float.class, double.class);
+
+    private OptionsSnapshot()
+    {
+    }
+
+    /**
+     * Writes the compiled table of the options.
+     */
+    public static void write(Options options, OutputStream out) throws IOException
+    {
+        CompiledOptions table = options.compile();
+        DataOutputStream data = new DataOutputStream(out);
+
+        // the distinct strings, in order of first use
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        for (int id = 0; id < table.getOptionCount(); id++)
+        {
+            Option option = table.getOption(id);
+            intern(strings, option.getOpt());
+            intern(strings, option.getLongOpt());
+            intern(strings, option.getArgName());
+            intern(strings, option.getDescription());
+            intern(strings, getTypeName(option));
+        }
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeStrings(data, strings.keySet());
+
+        data.writeInt(table.getOptionCount());
+        for (int id = 0; id < table.getOptionCount(); id++)
+        {
+            Option option = table.getOption(id);
+            data.writeInt(indexOf(strings, option.getOpt()));
+            data.writeInt(indexOf(strings, option.getLongOpt()));
+            data.writeInt(indexOf(strings, option.getArgName()));
+            data.writeInt(indexOf(strings, option.getDescription()));
+            data.writeInt(indexOf(strings, getTypeName(option)));
+            data.writeInt(option.getArgs());
+            data.writeChar(option.getValueSeperator());
+            data.writeByte((option.isRequired() ? REQUIRED : 0) | (option.hasArgOptional() ? OPTIONAL_ARG : 0));
+        }
+
+        data.writeInt(table.getLongOptionCount());
+        for (int position = 0; position < table.getLongOptionCount(); position++)
+        {
+            data.writeInt(table.getLongOptionId(position));
+        }
+
+        Map<OptionGroup, Integer> groupIds = new IdentityHashMap<OptionGroup, Integer>();
+        data.writeInt(table.getGroupCount());
+        for (int group = 0; group < table.getGroupCount(); group++)
+        {
+            groupIds.put(table.getGroup(group), group);
+            data.writeBoolean(table.getGroup(group).isRequired());
+        }
+        for (int id = 0; id < table.getOptionCount(); id++)
+        {
+            data.writeInt(table.getGroupId(id));
+        }
+
+        List<Object> required = table.getRequiredOptions();
+        data.writeInt(required.size());
+        for (Object entry : required)
+        {
+            if (entry instanceof OptionGroup)
+            {
+                data.writeByte(REQUIRED_GROUP);
+                data.writeInt(groupIds.get(entry));
+            }
+            else
+            {
+                data.writeByte(REQUIRED_OPTION);
+                data.writeInt(table.getOptionId((String) entry));
+            }
+        }
+
+        table.getShortOptionIndex().write(data, strings);
+        table.getLongOptionIndex().write(data, strings);
+        data.flush();
+    }
+
+    /**
+     * Writes the compiled table of the options to a file, replacing it.
+     */
+    public static void write(Options options, Path file) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file)))
+        {
+            write(options, out);
+        }
+    }
+
+    /**
+     * Loads the options of a snapshot file through a memory mapping.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static Options load(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Loads the options of a snapshot found on the class path.
+     *
+     * @param anchor the class the resource name is resolved against
+     * @param name the name of the resource
+     * @throws IOException if the resource is missing, cannot be read or is
+     * not a snapshot
+     */
+    public static Options load(Class<?> anchor, String name) throws IOException
+    {
+        try (InputStream in = anchor.getResourceAsStream(name))
+        {
+            if (in == null)
+            {
+                throw new FileNotFoundException("Options snapshot not found: " + name);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+            {
+                bytes.write(buffer, 0, n);
+            }
+            return read(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+    }
+
+    /**
+     * Reads the options of a snapshot from the current position of the buffer.
+     *
+     * @throws IOException if the buffer does not hold a snapshot
+     */
+    public static Options read(ByteBuffer in) throws IOException
+    {
+        try
+        {
+            if (in.getInt() != MAGIC)
+            {
+                throw new IOException("Not an options snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported options snapshot version: " + version);
+            }
+            return new Options(readTable(in, readStrings(in)));
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Truncated options snapshot", e);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // an option name damaged into an invalid one
+            throw new IOException("Corrupt options snapshot", e);
+        }
+    }
+
+    /**
+     * Reads the number of entries that follow, each taking at least
+     * <code>size</code> bytes, so that a damaged count is rejected before
+     * anything is allocated for it.
+     */
+    static int readCount(ByteBuffer in, int size) throws IOException
+    {
+        int count = in.getInt();
+        if (count < 0)
+        {
+            throw new IOException("Corrupt options snapshot");
+        }
+        if ((long) count * size > in.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    /**
+     * Reads an index in an array of the specified length.
+     */
+    static int readIndex(ByteBuffer in, int length) throws IOException
+    {
+        int index = in.getInt();
+        if (index < 0 || index >= length)
+        {
+            throw new IOException("Corrupt options snapshot");
+        }
+        return index;
+    }
+
+    /**
+     * Reads an index in an array of the specified length, or -1 for none.
+     */
+    private static int readOptionalIndex(ByteBuffer in, int length) throws IOException
+    {
+        int index = in.getInt();
+        if (index < -1 || index >= length)
+        {
+            throw new IOException("Corrupt options snapshot");
+        }
+        return index;
+    }
+
+    private static CompiledOptions readTable(ByteBuffer in, String[] strings) throws IOException
+    {
+        // five string indexes, the number of values, the separator and the flags
+        Option[] options = new Option[readCount(in, 27)];
+
+        // the types resolved so far, by string index
+        Class<?>[] types = new Class<?>[strings.length];
+        for (int id = 0; id < options.length; id++)
+        {
+            Option option = new Option(string(strings, readOptionalIndex(in, strings.length)),
+                                       string(strings, readOptionalIndex(in, strings.length)), false, null);
+            option.setArgName(string(strings, readOptionalIndex(in, strings.length)));
+            option.setDescription(string(strings, readOptionalIndex(in, strings.length)));
+            option.setType(getType(strings, types, readOptionalIndex(in, strings.length)));
+            option.setArgs(in.getInt());
+            option.setValueSeperator(in.getChar());
+            int flags = in.get();
+            option.setRequired((flags & REQUIRED) != 0);
+            option.setArgOptional((flags & OPTIONAL_ARG) != 0);
+            options[id] = option;
+        }
+
+        int[] longOptionIds = new int[readCount(in, 4)];
+        for (int position = 0; position < longOptionIds.length; position++)
+        {
+            longOptionIds[position] = readIndex(in, options.length);
+        }
+
+        OptionGroup[] groups = new OptionGroup[readCount(in, 1)];
+        for (int group = 0; group < groups.length; group++)
+        {
+            groups[group] = new OptionGroup();
+            groups[group].setRequired(in.get() != 0);
+        }
+        int[] groupIds = new int[options.length];
+        for (int id = 0; id < options.length; id++)
+        {
+            groupIds[id] = readOptionalIndex(in, groups.length);
+            if (groupIds[id] != -1)
+            {
+                groups[groupIds[id]].addOption(options[id]);
+            }
+        }
+
+        int count = readCount(in, 5);
+        List<Object> required = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++)
+        {
+            int kind = in.get();
+            if (kind == REQUIRED_GROUP)
+            {
+                required.add(groups[readIndex(in, groups.length)]);
+            }
+            else if (kind == REQUIRED_OPTION)
+            {
+                required.add(options[readIndex(in, options.length)].getKey());
+            }
+            else
+            {
+                throw new IOException("Corrupt options snapshot");
+            }
+        }
+
+        // the indexes give the ids of the options and of the long options
+        PrefixTrie shortOptionIndex = PrefixTrie.read(in, strings);
+        PrefixTrie longOptionIndex = PrefixTrie.read(in, strings);
+        if (shortOptionIndex.size() != options.length || longOptionIndex.size() != longOptionIds.length)
+        {
+            throw new IOException("Corrupt options snapshot");
+        }
+        return new CompiledOptions(options, longOptionIds, required, groups, groupIds,
+                                   shortOptionIndex, longOptionIndex);
+    }
+
+    private static void intern(Map<String, Integer> strings, String s)
+    {
+        if (s != null && !strings.containsKey(s))
+        {
+            strings.put(s, strings.size());
+        }
+    }
+
+    private static int indexOf(Map<String, Integer> strings, String s)
+    {
+        return s == null ? -1 : strings.get(s);
+    }
+
+    private static String string(String[] strings, int index)
+    {
+        return index == -1 ? null : strings[index];
+    }
+
+    /**
+     * Writes the strings as the end offset of each one followed by all their
+     * UTF-8 bytes, so that they are read with a single bulk copy.
+     */
+    private static void writeStrings(DataOutputStream out, Iterable<String> strings) throws IOException
+    {
+        List<byte[]> encoded = new ArrayList<byte[]>();
+        for (String s : strings)
+        {
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        out.writeInt(encoded.size());
+        int end = 0;
+        for (byte[] bytes : encoded)
+        {
+            end += bytes.length;
+            out.writeInt(end);
+        }
+        for (byte[] bytes : encoded)
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) throws IOException
+    {
+        int[] ends = new int[readCount(in, 4)];
+        for (int i = 0; i < ends.length; i++)
+        {
+            ends[i] = in.getInt();
+            if (ends[i] < (i == 0 ? 0 : ends[i - 1]))
+            {
+                throw new IOException("Corrupt options snapshot");
+            }
+        }
+
+        int length = ends.length == 0 ? 0 : ends[ends.length - 1];
+        if (length > in.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+
+        String[] strings = new String[ends.length];
+        int start = 0;
+        for (int i = 0; i < ends.length; i++)
+        {
+            strings[i] = new String(bytes, start, ends[i] - start, StandardCharsets.UTF_8);
+            start = ends[i];
+        }
+        return strings;
+    }
+
+    private static String getTypeName(Option option)
+    {
+        Object type = option.getType();
+        return type instanceof Class ? ((Class<?>) type).getName() : null;
+    }
+
+    private static Class<?> getType(String[] strings, Class<?>[] types, int index) throws IOException
+    {
+        if (index == -1)
+        {
+            return null;
+        }
+        if (types[index] == null)
+        {
+            types[index] = getType(strings[index]);
+        }
+        return types[index];
+    }
+
+    private static Class<?> getType(String name) throws IOException
+    {
+        for (Class<?> primitive : PRIMITIVES)
+        {
+            if (primitive.getName().equals(name))
+            {
+                return primitive;
+            }
+        }
+
+        try
+        {
+            return Class.forName(name, false, OptionsSnapshot.class.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IOException("Unknown option type in snapshot: " + name, e);
+        }
+    }
+}
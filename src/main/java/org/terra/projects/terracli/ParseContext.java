@@ -0,0 +1,160 @@
+package org.terra.projects.terracli;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Mutable state of a single {@link DefaultParser} invocation. Keeping it out
+ * of the parser lets one parser instance serve concurrent parses.
+ */
+final class ParseContext
+{
+    /** the compiled options being parsed against */
+    final CompiledOptions options;
+
+    /** flag indicating how unrecognized tokens are handled */
+    final boolean stopAtNonOption;
+
+    /** the receiver of the arguments that are not options, or <code>null</code> to keep them in the command line */
+    final ArgumentHandler argumentHandler;
+
+    /** the receiver of every event in event mode, or <code>null</code> */
+    final ParseEventHandler eventHandler;
+
+    /** the command line being built, <code>null</code> in event mode */
+    final CommandLine cmd;
+
+    /** the token currently processed */
+    String currentToken;
+
+    /** the number of tokens processed, counted only for the listener */
+    int tokenCount;
+
+    /** the receiver of the measurements of this parse, or <code>null</code> */
+    ParseListener listener;
+
+    /** the start of this parse, measured only for a listener */
+    long startNanos;
+
+    /** the last option parsed, still accepting arguments */
+    Option currentOption;
+
+    /** flag indicating if tokens should no longer be analyzed and simply added as arguments */
+    boolean skipParsing;
+
+    /** the id of the last option reported in event mode */
+    private int lastOptionId;
+
+    /** the number of values of the last option reported in event mode */
+    private int lastValueCount;
+
+    /** the values of the last processed argument in event mode, until they are reported */
+    private final List<String> pendingValues;
+
+    /** collects the values split by the options in event mode */
+    private final ValueSink pendingSink;
+
+    /** the response files being expanded, innermost first, created on the first one */
+    Deque<Path> responseFiles;
+
+    /** the required options and groups expected to be found while parsing */
+    final ExpectedOptions expectedOpts;
+
+    /** the option selected in each group */
+    final GroupSelection groupSelection;
+
+    ParseContext(CompiledOptions options, boolean stopAtNonOption, ArgumentHandler argumentHandler)
+    {
+        this(options, stopAtNonOption, argumentHandler, null);
+    }
+
+    ParseContext(CompiledOptions options, ParseEventHandler eventHandler, boolean stopAtNonOption)
+    {
+        this(options, stopAtNonOption, eventHandler, eventHandler);
+    }
+
+    private ParseContext(CompiledOptions options, boolean stopAtNonOption, ArgumentHandler argumentHandler,
+                         ParseEventHandler eventHandler)
+    {
+        this.options = options;
+        this.stopAtNonOption = stopAtNonOption;
+        this.argumentHandler = argumentHandler;
+        this.eventHandler = eventHandler;
+        this.cmd = eventHandler == null ? new CommandLine(options) : null;
+        this.pendingValues = eventHandler == null ? null : new ArrayList<String>(2);
+        this.pendingSink = eventHandler == null ? null
+                : (token, begin, end) -> pendingValues.add(token.substring(begin, end));
+        this.expectedOpts = new ExpectedOptions(options);
+        this.groupSelection = new GroupSelection(options);
+    }
+
+    void addArg(String arg) throws ParseException
+    {
+        if (argumentHandler != null)
+        {
+            argumentHandler.handleArgument(arg);
+        }
+        else
+        {
+            cmd.addArg(arg);
+        }
+    }
+
+    /**
+     * Records a new occurrence of the option; the values added next belong to it.
+     */
+    void addOption(int id) throws ParseException
+    {
+        if (eventHandler != null)
+        {
+            eventHandler.handleOption(id, options.getOption(id));
+            lastOptionId = id;
+            lastValueCount = 0;
+        }
+        else
+        {
+            cmd.addOption(id);
+        }
+    }
+
+    /**
+     * Adds a value to the last occurrence, split and checked by the rules of its option.
+     */
+    void addValueForProcessing(String value) throws ParseException
+    {
+        addValueForProcessing(value, 0, value.length());
+    }
+
+    /**
+     * Adds the value found between the specified bounds of the token to the
+     * last occurrence. The command line keeps the bounds rather than a copy
+     * of the value.
+     */
+    void addValueForProcessing(String token, int begin, int end) throws ParseException
+    {
+        if (eventHandler != null)
+        {
+            options.getOption(lastOptionId).addValueForProcessing(token, begin, end, pendingSink, lastValueCount);
+            lastValueCount += pendingValues.size();
+            for (String pending : pendingValues)
+            {
+                eventHandler.handleValue(lastOptionId, pending);
+            }
+            pendingValues.clear();
+        }
+        else
+        {
+            cmd.addValueForProcessing(token, begin, end);
+        }
+    }
+
+    /**
+     * Returns the number of values held by the last occurrence.
+     */
+    int getLastValueCount()
+    {
+        return eventHandler != null ? lastValueCount : cmd.getLastValueCount();
+    }
+}
@@ -0,0 +1,32 @@
+package org.terra.projects.terracli;
+
+/**
+ * Receives the options, values and arguments of a command line as
+ * {@link DefaultParser#parseEvents} finds them. Nothing is retained by the
+ * parser: a handler that only reacts to each event parses without building
+ * a {@link CommandLine}.
+ * <p>
+ * Options are identified by their id in {@link Options#compile()}. The
+ * values of an option follow the option they belong to, split by its value
+ * separator and checked against its number of arguments.
+ */
+public interface ParseEventHandler extends ArgumentHandler
+{
+    /**
+     * Called for each occurrence of an option.
+     *
+     * @param id the id of the option
+     * @param option the definition of the option
+     * @throws ParseException to stop the parse
+     */
+    void handleOption(int id, Option option) throws ParseException;
+
+    /**
+     * Called for each value of the last option reported.
+     *
+     * @param id the id of the option
+     * @param value the value
+     * @throws ParseException to stop the parse
+     */
+    void handleValue(int id, String value) throws ParseException;
+}
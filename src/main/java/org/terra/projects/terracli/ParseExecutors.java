@@ -0,0 +1,37 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executor of a {@link ParseService} that is not given one.
+ * <p>
+ * This is the Java 8 version, running parses on a cached pool of daemon
+ * threads. A parse frees its slot before its thread returns to the pool, so
+ * the pool may briefly hold a few threads more than the in-flight limit of
+ * the service; the idle ones expire after a minute.
+ * The multi-release jar holds a Java 21 version of this class using virtual
+ * threads instead.
+ */
+final class ParseExecutors
+{
+    private ParseExecutors()
+    {
+    }
+
+    static ExecutorService newExecutor()
+    {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "terracli-parse-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package org.terra.projects.terracli;
+
+/**
+ * Receives measurements of the parses of a {@link DefaultParser}, a
+ * {@link Parser} or a {@link CachingCommandLineParser} it is registered
+ * with. The parsers check for a listener before measuring anything, so
+ * parsing without one costs nothing.
+ * <p>
+ * Listeners are called on the parsing thread, they must be thread safe if
+ * the parser is shared. Every method does nothing by default.
+ *
+ * @see ParseMetrics
+ */
+public interface ParseListener
+{
+    /**
+     * Called when a parse succeeds.
+     *
+     * @param tokens the number of arguments parsed, including those read
+     * from response files
+     * @param nanos the duration of the parse
+     */
+    default void parsed(int tokens, long nanos)
+    {
+    }
+
+    /**
+     * Called when a parse fails.
+     *
+     * @param tokens the number of arguments parsed until the failure
+     * @param nanos the duration of the parse until the failure
+     * @param exception the exception thrown by the parser
+     */
+    default void failed(int tokens, long nanos, ParseException exception)
+    {
+    }
+
+    /**
+     * Called after the default values of a parse have been read from properties.
+     *
+     * @param properties the number of properties
+     * @param nanos the time spent handling them
+     */
+    default void propertiesHandled(int properties, long nanos)
+    {
+    }
+
+    /**
+     * Called when a {@link CachingCommandLineParser} returns a cached command line.
+     */
+    default void cacheHit()
+    {
+    }
+
+    /**
+     * Called when a {@link CachingCommandLineParser} parses the arguments.
+     */
+    default void cacheMiss()
+    {
+    }
+}
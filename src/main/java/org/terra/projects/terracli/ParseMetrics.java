@@ -0,0 +1,211 @@
+package org.terra.projects.terracli;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ParseListener} keeping the measurements in memory: the latency
+ * of the parses and of the properties handling, the number of tokens per
+ * parse, the failures by exception type and the cache hits and misses.
+ * <p>
+ * The metrics may be shared by parsers on several threads and are read
+ * with {@link #toJson()}, for instance to be published periodically.
+ */
+public class ParseMetrics implements ParseListener
+{
+    private final LatencyTimer parseLatency = new LatencyTimer();
+
+    private final LatencyTimer propertiesLatency = new LatencyTimer();
+
+    private final LongAdder tokens = new LongAdder();
+
+    private final LongAccumulator maxTokens = new LongAccumulator(Math::max, 0);
+
+    /** the number of tokens per parse */
+    private final Log2Histogram tokenHistogram = new Log2Histogram();
+
+    /** the number of failed parses, by exception type */
+    private final ConcurrentHashMap<Class<?>, LongAdder> failures = new ConcurrentHashMap<Class<?>, LongAdder>();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @Override
+    public void parsed(int tokens, long nanos)
+    {
+        record(tokens, nanos);
+    }
+
+    @Override
+    public void failed(int tokens, long nanos, ParseException exception)
+    {
+        record(tokens, nanos);
+        failures.computeIfAbsent(exception.getClass(), type -> new LongAdder()).increment();
+    }
+
+    private void record(int count, long nanos)
+    {
+        parseLatency.record(nanos);
+        tokens.add(count);
+        maxTokens.accumulate(count);
+        tokenHistogram.record(count);
+    }
+
+    @Override
+    public void propertiesHandled(int properties, long nanos)
+    {
+        propertiesLatency.record(nanos);
+    }
+
+    @Override
+    public void cacheHit()
+    {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void cacheMiss()
+    {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Returns the latency of the parses, failed or not.
+     */
+    public LatencyTimer getParseLatency()
+    {
+        return parseLatency;
+    }
+
+    /**
+     * Returns the time spent handling the default values read from properties.
+     */
+    public LatencyTimer getPropertiesLatency()
+    {
+        return propertiesLatency;
+    }
+
+    public long getTokenCount()
+    {
+        return tokens.sum();
+    }
+
+    public long getMaxTokens()
+    {
+        return maxTokens.get();
+    }
+
+    /**
+     * Returns an upper bound of the number of tokens below which the
+     * specified fraction of the parses fall, within a factor of two.
+     *
+     * @param fraction the fraction of the parses, between 0 and 1
+     */
+    public long getTokenPercentile(double fraction)
+    {
+        return tokenHistogram.getPercentile(fraction, maxTokens.get());
+    }
+
+    /**
+     * Returns the number of parses failed with the specified exception type,
+     * its subclasses excluded.
+     */
+    public long getFailureCount(Class<? extends ParseException> type)
+    {
+        LongAdder count = failures.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getFailureCount()
+    {
+        long count = 0;
+        for (LongAdder adder : failures.values())
+        {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    public long getCacheHitCount()
+    {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount()
+    {
+        return cacheMisses.sum();
+    }
+
+    public void reset()
+    {
+        parseLatency.reset();
+        propertiesLatency.reset();
+        tokens.reset();
+        maxTokens.reset();
+        tokenHistogram.reset();
+        failures.clear();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    /**
+     * Returns the metrics as a JSON object. The latencies are in
+     * nanoseconds, the failures are keyed by the simple name of their
+     * exception type.
+     */
+    public String toJson()
+    {
+        // sorted for a stable output
+        Map<String, Long> failuresByName = new TreeMap<String, Long>();
+        for (Map.Entry<Class<?>, LongAdder> entry : failures.entrySet())
+        {
+            failuresByName.put(entry.getKey().getSimpleName(), entry.getValue().sum());
+        }
+
+        long parses = parseLatency.getCount();
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"parses\":").append(parses);
+        json.append(",\"latency\":");
+        appendTimer(json, parseLatency);
+        json.append(",\"tokens\":{\"total\":").append(getTokenCount())
+            .append(",\"average\":").append(parses == 0 ? 0 : getTokenCount() / parses)
+            .append(",\"p50\":").append(getTokenPercentile(0.5))
+            .append(",\"p99\":").append(getTokenPercentile(0.99))
+            .append(",\"max\":").append(getMaxTokens()).append('}');
+        json.append(",\"failures\":{");
+        String separator = "";
+        for (Map.Entry<String, Long> entry : failuresByName.entrySet())
+        {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            separator = ",";
+        }
+        json.append('}');
+        json.append(",\"properties\":");
+        appendTimer(json, propertiesLatency);
+        json.append(",\"cache\":{\"hits\":").append(getCacheHitCount())
+            .append(",\"misses\":").append(getCacheMissCount()).append('}');
+        return json.append('}').toString();
+    }
+
+    private static void appendTimer(StringBuilder json, LatencyTimer timer)
+    {
+        json.append("{\"count\":").append(timer.getCount())
+            .append(",\"average\":").append(timer.getAverage(TimeUnit.NANOSECONDS))
+            .append(",\"p50\":").append(timer.getPercentile(0.5, TimeUnit.NANOSECONDS))
+            .append(",\"p99\":").append(timer.getPercentile(0.99, TimeUnit.NANOSECONDS))
+            .append(",\"max\":").append(timer.getMax(TimeUnit.NANOSECONDS))
+            .append('}');
+    }
+
+    @Override
+    public String toString()
+    {
+        return toJson();
+    }
+}
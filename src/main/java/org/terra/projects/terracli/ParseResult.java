@@ -0,0 +1,52 @@
+package org.terra.projects.terracli;
+
+/**
+ * The outcome of parsing one argument list of a batch: either the command
+ * line or the exception the parse failed with.
+ *
+ * @see DefaultParser#parseAll(Options, java.util.List)
+ */
+public final class ParseResult
+{
+    private final String[] arguments;
+
+    private final CommandLine commandLine;
+
+    private final ParseException exception;
+
+    ParseResult(String[] arguments, CommandLine commandLine, ParseException exception)
+    {
+        this.arguments = arguments;
+        this.commandLine = commandLine;
+        this.exception = exception;
+    }
+
+    /**
+     * Returns the argument list that was parsed.
+     */
+    public String[] getArguments()
+    {
+        return arguments;
+    }
+
+    public boolean isSuccess()
+    {
+        return exception == null;
+    }
+
+    /**
+     * Returns the command line, or <code>null</code> if the parse failed.
+     */
+    public CommandLine getCommandLine()
+    {
+        return commandLine;
+    }
+
+    /**
+     * Returns the exception the parse failed with, or <code>null</code>.
+     */
+    public ParseException getException()
+    {
+        return exception;
+    }
+}
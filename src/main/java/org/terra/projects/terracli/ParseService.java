@@ -0,0 +1,258 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses command lines asynchronously against one {@link Options}
+ * definition, with a bound on the number of parses in flight.
+ * <p>
+ * When the bound is reached, {@link #parseAsync(String[])} blocks the caller
+ * until a parse completes and {@link #tryParseAsync(String[])} fails
+ * immediately, so callers feel the backpressure instead of queueing work
+ * without limit. The latency of every parse, from its submission to its
+ * completion, is recorded in the {@link Statistics} of the service.
+ * <p>
+ * Without an explicit executor, parses run on virtual threads on Java 21 and
+ * later, and on a pool of daemon threads on earlier versions.
+ */
+public class ParseService implements AutoCloseable
+{
+    private final Options options;
+
+    private final DefaultParser parser;
+
+    private final Executor executor;
+
+    /** the executor created by the service, shut down on close */
+    private final ExecutorService ownedExecutor;
+
+    private final int maxInFlight;
+
+    private final Semaphore permits;
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a service running on its own executor.
+     *
+     * @param options the options to parse against
+     * @param maxInFlight the maximum number of parses submitted and not completed
+     */
+    public ParseService(Options options, int maxInFlight)
+    {
+        this(options, new DefaultParser(), null, maxInFlight);
+    }
+
+    /**
+     * Creates a service running on the specified executor, which is left
+     * running on close.
+     *
+     * @param options the options to parse against
+     * @param parser the parser, shared by every parse
+     * @param executor the executor running the parses, or <code>null</code>
+     * for an executor owned by the service
+     * @param maxInFlight the maximum number of parses submitted and not completed
+     */
+    public ParseService(Options options, DefaultParser parser, Executor executor, int maxInFlight)
+    {
+        if (maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("The in-flight limit must be positive: " + maxInFlight);
+        }
+
+        this.options = options;
+        this.parser = parser;
+        this.ownedExecutor = executor == null ? ParseExecutors.newExecutor() : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+
+        options.compile();
+    }
+
+    /**
+     * Submits a parse, waiting for a parse in flight to complete if the limit
+     * is reached.
+     *
+     * @return the future command line, completed exceptionally with the
+     * {@link ParseException} if the parse fails
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public CompletableFuture<CommandLine> parseAsync(String[] arguments) throws InterruptedException
+    {
+        permits.acquire();
+        return submit(arguments);
+    }
+
+    /**
+     * Submits a parse unless the limit of parses in flight is reached, in
+     * which case the returned future has already failed with a
+     * {@link RejectedExecutionException}.
+     */
+    public CompletableFuture<CommandLine> tryParseAsync(String[] arguments)
+    {
+        if (!permits.tryAcquire())
+        {
+            CompletableFuture<CommandLine> rejected = new CompletableFuture<CommandLine>();
+            rejected.completeExceptionally(
+                    new RejectedExecutionException(maxInFlight + " parses are already in flight"));
+            return rejected;
+        }
+        return submit(arguments);
+    }
+
+    private CompletableFuture<CommandLine> submit(final String[] arguments)
+    {
+        final CompletableFuture<CommandLine> future = new CompletableFuture<CommandLine>();
+        final long start = System.nanoTime();
+        try
+        {
+            executor.execute(() -> run(arguments, future, start));
+        }
+        catch (RejectedExecutionException e)
+        {
+            permits.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void run(String[] arguments, CompletableFuture<CommandLine> future, long start)
+    {
+        CommandLine cmd = null;
+        Throwable failure = null;
+        try
+        {
+            cmd = parser.parse(options, arguments);
+        }
+        catch (Throwable e)
+        {
+            // errors fail the future too, its callers would wait forever otherwise
+            failure = e;
+        }
+        finally
+        {
+            long latency = System.nanoTime() - start;
+            totalNanos.add(latency);
+            maxNanos.accumulate(latency);
+            (failure == null ? completed : failed).increment();
+
+            // free the slot before the callbacks of the future run
+            permits.release();
+        }
+
+        if (failure == null)
+        {
+            future.complete(cmd);
+        }
+        else
+        {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    public Statistics getStatistics()
+    {
+        return new Statistics(completed.sum(), failed.sum(), maxInFlight - permits.availablePermits(),
+                              totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Shuts down the executor created by the service, letting the parses in
+     * flight complete. An executor given to the service is left running.
+     */
+    @Override
+    public void close()
+    {
+        if (ownedExecutor != null)
+        {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * A snapshot of the activity of a {@link ParseService}.
+     */
+    public static final class Statistics
+    {
+        private final long completed;
+
+        private final long failed;
+
+        private final int inFlight;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        Statistics(long completed, long failed, int inFlight, long totalNanos, long maxNanos)
+        {
+            this.completed = completed;
+            this.failed = failed;
+            this.inFlight = inFlight;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Returns the number of parses that succeeded.
+         */
+        public long getCompleted()
+        {
+            return completed;
+        }
+
+        /**
+         * Returns the number of parses that failed.
+         */
+        public long getFailed()
+        {
+            return failed;
+        }
+
+        /**
+         * Returns the number of parses submitted and not completed.
+         */
+        public int getInFlight()
+        {
+            return inFlight;
+        }
+
+        public long getAverageLatency(TimeUnit unit)
+        {
+            long count = completed + failed;
+            return count == 0 ? 0 : unit.convert(totalNanos / count, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxLatency(TimeUnit unit)
+        {
+            return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "completed=" + completed + ", failed=" + failed + ", inFlight=" + inFlight
+                    + ", averageLatency=" + getAverageLatency(TimeUnit.MICROSECONDS) + "us"
+                    + ", maxLatency=" + getMaxLatency(TimeUnit.MICROSECONDS) + "us";
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.terra.projects.terracli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of parsing an argument list against a {@link CommandTree}:
+ * the command line of each command along the chosen path, from the root
+ * down to the subcommand that was run.
+ */
+public final class ParsedCommand
+{
+    private final String name;
+
+    private final CommandLine commandLine;
+
+    private final ParsedCommand subcommand;
+
+    ParsedCommand(String name, CommandLine commandLine, ParsedCommand subcommand)
+    {
+        this.name = name;
+        this.commandLine = commandLine;
+        this.subcommand = subcommand;
+    }
+
+    /**
+     * Returns the name the command was chosen by, or <code>null</code> for
+     * the root of the tree.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the options and arguments given to this command. For a command
+     * whose subcommand was chosen, the arguments are the name of the
+     * subcommand followed by its own arguments.
+     */
+    public CommandLine getCommandLine()
+    {
+        return commandLine;
+    }
+
+    /**
+     * Returns the subcommand chosen, or <code>null</code> if there is none.
+     */
+    public ParsedCommand getSubcommand()
+    {
+        return subcommand;
+    }
+
+    /**
+     * Returns the last command of the path, the one to run.
+     */
+    public ParsedCommand getLeaf()
+    {
+        ParsedCommand leaf = this;
+        while (leaf.subcommand != null)
+        {
+            leaf = leaf.subcommand;
+        }
+        return leaf;
+    }
+
+    /**
+     * Returns the names of the subcommands chosen, in order.
+     */
+    public List<String> getPath()
+    {
+        List<String> path = new ArrayList<String>();
+        for (ParsedCommand command = subcommand; command != null; command = command.subcommand)
+        {
+            path.add(command.name);
+        }
+        return path;
+    }
+}
@@ -1,6 +1,5 @@
 package org.terra.projects.terracli;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
@@ -15,13 +14,34 @@ public abstract class Parser implements CommandLineParser
     /** current Options */
     private Options options;
 
-    /** list of required options strings */
-    private List requiredOptions;
+    /** the required options and groups not found yet */
+    private ExpectedOptions requiredOptions;
+
+    /** the option selected in each group */
+    private GroupSelection groupSelection;
+
+    /** the receiver of the measurements of the parses, or <code>null</code> */
+    private ParseListener listener;
+
+    /**
+     * Registers the listener measuring the parses, replacing the previous
+     * one, or removes it if <code>null</code>.
+     */
+    public void setParseListener(ParseListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public ParseListener getParseListener()
+    {
+        return listener;
+    }
 
     protected void setOptions(Options options)
     {
         this.options = options;
-        this.requiredOptions = new ArrayList(options.getRequiredOptions());
+        this.requiredOptions = new ExpectedOptions(options.compile());
+        this.groupSelection = new GroupSelection(options.compile());
     }
 
     protected Options getOptions()
@@ -29,9 +49,13 @@ public abstract class Parser implements CommandLineParser
         return options;
     }
 
-    protected List getRequiredOptions()
+    /**
+     * Returns the keys of the required options and the required groups not
+     * found yet.
+     */
+    protected List<?> getRequiredOptions()
     {
-        return requiredOptions;
+        return requiredOptions.getMissing();
     }
 
     protected abstract String[] flatten(Options opts, String[] arguments, boolean stopAtNonOption)
@@ -55,22 +79,33 @@ public abstract class Parser implements CommandLineParser
     public CommandLine parse(Options options, String[] arguments, Properties properties, boolean stopAtNonOption)
             throws ParseException
     {
-        // clear out the data in options in case it's been used before (CLI-71)
-        for (Option opt : options.helpOptions())
+        if (listener == null)
         {
-            opt.clearValues();
+            return parseArguments(options, arguments, properties, stopAtNonOption);
         }
-        
-        // clear the data from the groups
-        for (OptionGroup group : options.getOptionGroups())
+
+        int tokens = arguments == null ? 0 : arguments.length;
+        long start = System.nanoTime();
+        try
         {
-            group.setSelected(null);
-        }        
+            CommandLine cmd = parseArguments(options, arguments, properties, stopAtNonOption);
+            listener.parsed(tokens, System.nanoTime() - start);
+            return cmd;
+        }
+        catch (ParseException e)
+        {
+            listener.failed(tokens, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
 
+    private CommandLine parseArguments(Options options, String[] arguments, Properties properties,
+                                       boolean stopAtNonOption) throws ParseException
+    {
         // initialise members
         setOptions(options);
 
-        cmd = new CommandLine();
+        cmd = new CommandLine(options.compile());
 
         boolean eatTheRest = false;
 
@@ -148,7 +183,16 @@ public abstract class Parser implements CommandLineParser
             }
         }
 
-        processProperties(properties);
+        if (listener != null && properties != null)
+        {
+            long start = System.nanoTime();
+            processProperties(properties);
+            listener.propertiesHandled(properties.size(), System.nanoTime() - start);
+        }
+        else
+        {
+            processProperties(properties);
+        }
         checkRequiredOptions();
 
         return cmd;
@@ -165,36 +209,22 @@ public abstract class Parser implements CommandLineParser
         {
             String option = e.nextElement().toString();
             
-            Option opt = options.getOption(option);
-            if (opt == null)
+            int id = options.compile().getOptionId(option);
+            if (id == -1)
             {
                 throw new UnrecognizedOptionException("Default option wasn't defined", option);
             }
+            Option opt = options.compile().getOption(id);
             
             // if the option is part of a group, check if another option of the group has been selected
-            OptionGroup group = options.getOptionGroup(opt);
-            boolean selected = group != null && group.getSelected() != null;
+            boolean selected = groupSelection.isSelected(id);
             
-            if (!cmd.hasOption(option) && !selected)
+            if (!cmd.hasOptionById(id) && !selected)
             {
                 // get the value from the properties instance
                 String value = properties.getProperty(option);
 
-                if (opt.hasArg())
-                {
-                    if (opt.getValues() == null || opt.getValues().length == 0)
-                    {
-                        try
-                        {
-                            opt.addValueForProcessing(value);
-                        }
-                        catch (RuntimeException exp) //NOPMD
-                        {
-                            // if we cannot add the value don't worry about it
-                        }
-                    }
-                }
-                else if (!("yes".equalsIgnoreCase(value)
+                if (!opt.hasArg() && !("yes".equalsIgnoreCase(value)
                         || "true".equalsIgnoreCase(value)
                         || "1".equalsIgnoreCase(value)))
                 {
@@ -203,8 +233,20 @@ public abstract class Parser implements CommandLineParser
                     continue;
                 }
 
-                cmd.addOption(opt);
-                updateRequiredOptions(opt);
+                cmd.addOption(id);
+                if (opt.hasArg())
+                {
+                    // the option was not on the command line, so it has no value yet
+                    try
+                    {
+                        cmd.addValueForProcessing(value);
+                    }
+                    catch (RuntimeException exp) //NOPMD
+                    {
+                        // if we cannot add the value don't worry about it
+                    }
+                }
+                updateRequiredOptions(id);
             }
         }
     }
@@ -212,7 +254,7 @@ public abstract class Parser implements CommandLineParser
     protected void checkRequiredOptions() throws MissingOptionException
     {
         // if there are required options that have not been processed
-        if (!getRequiredOptions().isEmpty())
+        if (!requiredOptions.isEmpty())
         {
             throw new MissingOptionException(getRequiredOptions());
         }
@@ -235,7 +277,7 @@ public abstract class Parser implements CommandLineParser
             // found a value
             try
             {
-                opt.addValueForProcessing(Util.stripLeadingAndTrailingQuotes(str));
+                cmd.addValueForProcessing(Util.stripLeadingAndTrailingQuotes(str));
             }
             catch (RuntimeException exp)
             {
@@ -244,7 +286,7 @@ public abstract class Parser implements CommandLineParser
             }
         }
 
-        if (opt.getValues() == null && !opt.hasOptionalArg())
+        if (cmd.getLastValueCount() == 0 && !opt.hasArgOptional())
         {
             throw new MissingArgumentException(opt);
         }
@@ -252,51 +294,37 @@ public abstract class Parser implements CommandLineParser
 
     protected void processOption(String arg, ListIterator<String> iter) throws ParseException
     {
-        boolean hasOption = getOptions().hasOption(arg);
+        int id = getOptions().compile().getOptionId(arg);
 
         // if there is no option throw an UnrecognizedOptionException
-        if (!hasOption)
+        if (id == -1)
         {
             throw new UnrecognizedOptionException("Unrecognized option: " + arg, arg);
         }
 
         // get the option represented by arg
-        Option opt = (Option) getOptions().getOption(arg).clone();
+        Option opt = getOptions().compile().getOption(id);
         
         // update the required options and groups
-        updateRequiredOptions(opt);
+        updateRequiredOptions(id);
+        
+        // set the option on the command line, the values of this occurrence are kept there
+        cmd.addOption(id);
         
         // if the option takes an argument value
         if (opt.hasArg())
         {
             processArgs(opt, iter);
         }
-        
-        // set the option on the command line
-        cmd.addOption(opt);
     }
 
-    private void updateRequiredOptions(Option opt) throws ParseException
+    private void updateRequiredOptions(int id) throws ParseException
     {
-        // if the option is a required option remove the option from
-        // the requiredOptions list
-        if (opt.isRequired())
-        {
-            getRequiredOptions().remove(opt.getKey());
-        }
-
         // if the option is in an OptionGroup make that option the selected
         // option of the group
-        if (getOptions().getOptionGroup(opt) != null)
-        {
-            OptionGroup group = getOptions().getOptionGroup(opt);
+        groupSelection.select(id);
 
-            if (group.isRequired())
-            {
-                getRequiredOptions().remove(group);
-            }
-
-            group.setSelected(opt);
-        }
+        // the option and its group are no longer required
+        requiredOptions.found(id);
     }
 }
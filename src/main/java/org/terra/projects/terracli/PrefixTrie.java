@@ -0,0 +1,326 @@
+package org.terra.projects.terracli;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable prefix index over a set of option names.
+ * <p>
+ * The names are kept in a sorted array and every trie node covers the
+ * contiguous range of names sharing its prefix, so exact, unique-prefix and
+ * ambiguous lookups cost one step per character of the looked up key.
+ */
+final class PrefixTrie implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** the indexed names, sorted */
+    private final String[] names;
+
+    /** registration position of each entry of {@link #names} */
+    private final int[] order;
+
+    /** entry of {@link #names} for each registration position */
+    private final int[] position;
+
+    private final Node root;
+
+    PrefixTrie(Collection<String> keys)
+    {
+        int size = keys.size();
+        final String[] registered = keys.toArray(new String[size]);
+
+        Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++)
+        {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> registered[a].compareTo(registered[b]));
+
+        names = new String[size];
+        order = new int[size];
+        position = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            names[i] = registered[sorted[i]];
+            order[i] = sorted[i];
+            position[sorted[i]] = i;
+        }
+
+        root = build(0, 0, size);
+    }
+
+    private PrefixTrie(String[] names, int[] order, Node root)
+    {
+        this.names = names;
+        this.order = order;
+        this.position = new int[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            position[order[i]] = i;
+        }
+        this.root = root;
+    }
+
+    /**
+     * Writes the sorted names, as indexes in a string table, and the nodes in
+     * depth first order, so that {@link #read(ByteBuffer, String[])} restores
+     * the index without sorting or walking the names.
+     */
+    void write(DataOutput out, Map<String, Integer> strings) throws IOException
+    {
+        out.writeInt(names.length);
+        for (int i = 0; i < names.length; i++)
+        {
+            out.writeInt(strings.get(names[i]));
+            out.writeInt(order[i]);
+        }
+        write(out, root);
+    }
+
+    private static void write(DataOutput out, Node node) throws IOException
+    {
+        out.writeInt(node.labels.length);
+        for (char label : node.labels)
+        {
+            out.writeChar(label);
+        }
+        out.writeInt(node.from);
+        out.writeInt(node.to);
+        out.writeBoolean(node.terminal);
+        for (Node child : node.children)
+        {
+            write(out, child);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(DataOutput, Map)}.
+     *
+     * @param strings the string table the names are indexes in
+     */
+    static PrefixTrie read(ByteBuffer in, String[] strings) throws IOException
+    {
+        int size = OptionsSnapshot.readCount(in, 8);
+        String[] names = new String[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            names[i] = strings[OptionsSnapshot.readIndex(in, strings.length)];
+            order[i] = OptionsSnapshot.readIndex(in, size);
+        }
+        return new PrefixTrie(names, order, readNode(in, size));
+    }
+
+    private static Node readNode(ByteBuffer in, int size) throws IOException
+    {
+        // a label and the smallest child node for each child
+        int width = OptionsSnapshot.readCount(in, 15);
+        char[] labels = new char[width];
+        for (int i = 0; i < width; i++)
+        {
+            labels[i] = in.getChar();
+        }
+        int from = in.getInt();
+        int to = in.getInt();
+        boolean terminal = in.get() != 0;
+        if (from < 0 || from > to || to > size || terminal && from == to)
+        {
+            throw new IOException("Corrupt options snapshot");
+        }
+
+        Node[] children = new Node[width];
+        for (int i = 0; i < width; i++)
+        {
+            children[i] = readNode(in, size);
+        }
+        return new Node(labels, children, from, to, terminal);
+    }
+
+    private Node build(int depth, int from, int to)
+    {
+        boolean terminal = from < to && names[from].length() == depth;
+
+        // count the distinct characters following the prefix
+        int start = terminal ? from + 1 : from;
+        int width = 0;
+        for (int i = start; i < to; i++)
+        {
+            if (i == start || names[i].charAt(depth) != names[i - 1].charAt(depth))
+            {
+                width++;
+            }
+        }
+
+        char[] labels = new char[width];
+        Node[] children = new Node[width];
+
+        int child = 0;
+        int i = start;
+        while (i < to)
+        {
+            char c = names[i].charAt(depth);
+            int j = i + 1;
+            while (j < to && names[j].charAt(depth) == c)
+            {
+                j++;
+            }
+            labels[child] = c;
+            children[child] = build(depth + 1, i, j);
+            child++;
+            i = j;
+        }
+
+        return new Node(labels, children, from, to, terminal);
+    }
+
+    /**
+     * Returns the node reached by walking the characters of
+     * <code>s[start, end)</code>, or <code>null</code> if no indexed name
+     * starts with them.
+     */
+    private Node find(CharSequence s, int start, int end)
+    {
+        Node node = root;
+        for (int i = start; i < end && node != null; i++)
+        {
+            node = node.child(s.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Returns the number of indexed names.
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the registration position of the indexed name equal to
+     * <code>s[start, end)</code>, or -1.
+     */
+    int indexOf(CharSequence s, int start, int end)
+    {
+        Node node = find(s, start, end);
+        return node != null && node.terminal ? order[node.from] : -1;
+    }
+
+    /**
+     * Returns the registration position of the indexed name equal to
+     * <code>s[start, end)</code>, or else of the only indexed name starting
+     * with it. Returns -1 if there is no match or the prefix is ambiguous.
+     */
+    int matchIndexOf(CharSequence s, int start, int end)
+    {
+        Node node = find(s, start, end);
+        return node != null && (node.terminal || node.to - node.from == 1) ? order[node.from] : -1;
+    }
+
+    /**
+     * Tells if any indexed name starts with <code>s[start, end)</code>.
+     */
+    boolean hasMatch(CharSequence s, int start, int end)
+    {
+        // the root of an empty index matches nothing
+        Node node = find(s, start, end);
+        return node != null && node.to > node.from;
+    }
+
+    /**
+     * Returns the names matching <code>s[start, end)</code>: the name itself
+     * if it is indexed, otherwise every name it is a prefix of, in
+     * registration order.
+     */
+    List<String> getMatching(CharSequence s, int start, int end)
+    {
+        Node node = find(s, start, end);
+
+        if (node == null)
+        {
+            return Collections.emptyList();
+        }
+        if (node.terminal || node.to - node.from == 1)
+        {
+            return Collections.singletonList(names[node.from]);
+        }
+
+        int[] matches = Arrays.copyOfRange(order, node.from, node.to);
+        Arrays.sort(matches);
+
+        List<String> result = new ArrayList<String>(matches.length);
+        for (int match : matches)
+        {
+            result.add(names[position[match]]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the longest indexed name that is a prefix of
+     * <code>s[start, end)</code> and whose length lies within the given
+     * bounds, or <code>null</code>. The characters are walked once and
+     * nothing is allocated.
+     */
+    String getLongestPrefix(CharSequence s, int start, int end, int minLength, int maxLength)
+    {
+        String longest = null;
+
+        Node node = root;
+        for (int depth = 0; node != null && depth <= maxLength; depth++)
+        {
+            if (node.terminal && depth >= minLength)
+            {
+                longest = names[node.from];
+            }
+            if (start + depth == end)
+            {
+                break;
+            }
+            node = node.child(s.charAt(start + depth));
+        }
+
+        return longest;
+    }
+
+    private static final class Node implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] labels;
+
+        private final Node[] children;
+
+        /** range of {@link PrefixTrie#names} sharing this node's prefix */
+        private final int from;
+
+        private final int to;
+
+        /** whether the prefix itself is an indexed name, stored at <code>from</code> */
+        private final boolean terminal;
+
+        Node(char[] labels, Node[] children, int from, int to, boolean terminal)
+        {
+            this.labels = labels;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+            this.terminal = terminal;
+        }
+
+        Node child(char c)
+        {
+            int index = Arrays.binarySearch(labels, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.terra.projects.terracli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An interactive shell running commands typed one per line.
+ * <p>
+ * The first argument of a line names the command and the rest is parsed
+ * against the {@link Options} the command was registered with, then given
+ * to its {@link CommandHandler}. The options are compiled when the command
+ * is registered and the line is split in place as the parser consumes it,
+ * so no argument array is built per line. Arguments are separated by
+ * whitespace and may be grouped by single or double quotes, which are
+ * removed.
+ * <p>
+ * The time taken by every command, from the split of its line to the return
+ * of its handler, is recorded in a {@link LatencyTimer}. Two commands are
+ * built in unless a registered command has the same name:
+ * <code>stats</code> prints the latencies recorded so far and
+ * <code>exit</code> leaves {@link #run(BufferedReader)}.
+ * <p>
+ * A shell is meant to be driven by a single thread.
+ */
+public class Shell
+{
+    private static final String STATS = "stats";
+
+    private static final String EXIT = "exit";
+
+    private final DefaultParser parser;
+
+    private final PrintWriter out;
+
+    private final Map<String, Command> commands = new HashMap<String, Command>();
+
+    /** splits every line, reused from one line to the next */
+    private final ArgumentTokenizer tokenizer = new ArgumentTokenizer();
+
+    private final LatencyTimer timer = new LatencyTimer();
+
+    private long failed;
+
+    private String prompt = "> ";
+
+    public Shell(PrintWriter out)
+    {
+        this(new DefaultParser(), out);
+    }
+
+    /**
+     * @param parser the parser of the arguments of every command
+     * @param out the output of the prompt, the error messages and the commands
+     */
+    public Shell(DefaultParser parser, PrintWriter out)
+    {
+        this.parser = parser;
+        this.out = out;
+    }
+
+    /**
+     * Registers a command, replacing any command of the same name.
+     *
+     * @param name the first argument of the lines running the command
+     * @param options the options of the command
+     * @param handler the code of the command
+     */
+    public Shell register(String name, Options options, CommandHandler handler)
+    {
+        // compile now rather than on the first line
+        options.compile();
+        commands.put(name, new Command(options, handler));
+        return this;
+    }
+
+    public void setPrompt(String prompt)
+    {
+        this.prompt = prompt;
+    }
+
+    /**
+     * Runs the command on the specified line. Blank lines are ignored.
+     *
+     * @return <code>false</code> if the line is the <code>exit</code> command
+     * @throws ParseException if the command is unknown, its arguments are not
+     * valid or its handler fails
+     */
+    public boolean execute(CharSequence line) throws ParseException
+    {
+        long start = System.nanoTime();
+
+        tokenizer.reset(line);
+        if (!tokenizer.hasNext())
+        {
+            return true;
+        }
+
+        String name = tokenizer.next();
+        Command command = commands.get(name);
+        if (command == null)
+        {
+            if (EXIT.equals(name))
+            {
+                return false;
+            }
+            if (STATS.equals(name))
+            {
+                out.println("failed=" + failed + ", " + timer);
+                return true;
+            }
+        }
+
+        boolean success = false;
+        try
+        {
+            if (command == null)
+            {
+                throw new ParseException("Unknown command: " + name);
+            }
+
+            command.handler.execute(parser.parse(command.options, tokenizer, null, false), out);
+            success = true;
+        }
+        finally
+        {
+            timer.recordSince(start);
+            if (!success)
+            {
+                failed++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads and runs lines until the end of the input or the
+     * <code>exit</code> command. The message of a failed command, or the
+     * runtime exception thrown by its handler, is printed and the next line
+     * is read.
+     */
+    public void run(BufferedReader in) throws IOException
+    {
+        while (true)
+        {
+            out.print(prompt);
+            out.flush();
+
+            String line = in.readLine();
+            if (line == null)
+            {
+                break;
+            }
+
+            try
+            {
+                if (!execute(line))
+                {
+                    break;
+                }
+            }
+            catch (ParseException e)
+            {
+                out.println(e.getMessage());
+            }
+            catch (RuntimeException e)
+            {
+                // a failing handler must not end the session
+                out.println("Command failed: " + e);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the latencies of the commands run, failed ones included.
+     */
+    public LatencyTimer getLatencyTimer()
+    {
+        return timer;
+    }
+
+    /**
+     * Returns the number of commands that failed.
+     */
+    public long getFailedCount()
+    {
+        return failed;
+    }
+
+    private static final class Command
+    {
+        private final Options options;
+
+        private final CommandHandler handler;
+
+        Command(Options options, CommandHandler handler)
+        {
+            this.options = options;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.terra.projects.terracli;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the converters turning option values into the type set
+ * by {@link Option#setType(Class)}.
+ * <p>
+ * Converters are provided for <code>String</code>, <code>int</code>,
+ * <code>long</code>, <code>double</code> and <code>boolean</code> and their
+ * wrappers, <code>Path</code>, <code>File</code>, <code>Duration</code> and
+ * every enum type. Others may be registered.
+ */
+public final class TypeHandler
+{
+    private static final Map<Class<?>, ValueConverter<?>> CONVERTERS = new ConcurrentHashMap<Class<?>, ValueConverter<?>>();
+
+    static
+    {
+        register(String.class, value -> value);
+        register(Integer.class, TypeHandler::parseInt);
+        register(Long.class, TypeHandler::parseLong);
+        register(Double.class, TypeHandler::parseDouble);
+        register(Boolean.class, TypeHandler::parseBoolean);
+        register(Path.class, TypeHandler::parsePath);
+        register(File.class, value -> parsePath(value).toFile());
+        register(Duration.class, TypeHandler::parseDuration);
+    }
+
+    private TypeHandler()
+    {
+    }
+
+    /**
+     * Registers the converter of a type, replacing the previous one.
+     * Primitive types share the converter of their wrapper.
+     */
+    public static <T> void register(Class<T> type, ValueConverter<? extends T> converter)
+    {
+        CONVERTERS.put(wrap(type), converter);
+    }
+
+    /**
+     * Returns the converter of a type, or <code>null</code> if there is none.
+     */
+    public static ValueConverter<?> getConverter(Class<?> type)
+    {
+        ValueConverter<?> converter = CONVERTERS.get(wrap(type));
+        if (converter == null && type.isEnum())
+        {
+            converter = CONVERTERS.computeIfAbsent(type, TypeHandler::enumConverter);
+        }
+        return converter;
+    }
+
+    /**
+     * Converts a value to the specified type.
+     *
+     * @throws ParseException if the value cannot be converted, or if there is
+     * no converter for the type
+     */
+    public static Object convert(String value, Class<?> type) throws ParseException
+    {
+        ValueConverter<?> converter = getConverter(type);
+        if (converter == null)
+        {
+            throw new ParseException("No converter for the type " + type.getName());
+        }
+        return converter.convert(value);
+    }
+
+    /**
+     * Returns the wrapper of a primitive type, or the type itself.
+     */
+    static Class<?> wrap(Class<?> type)
+    {
+        if (!type.isPrimitive())
+        {
+            return type;
+        }
+        if (type == int.class)
+        {
+            return Integer.class;
+        }
+        if (type == long.class)
+        {
+            return Long.class;
+        }
+        if (type == double.class)
+        {
+            return Double.class;
+        }
+        if (type == boolean.class)
+        {
+            return Boolean.class;
+        }
+        if (type == float.class)
+        {
+            return Float.class;
+        }
+        if (type == short.class)
+        {
+            return Short.class;
+        }
+        if (type == byte.class)
+        {
+            return Byte.class;
+        }
+        return type == char.class ? Character.class : Void.class;
+    }
+
+    static int parseInt(String value) throws ParseException
+    {
+        return parseInt(value, 0, value.length());
+    }
+
+    /**
+     * Parses the int found between the specified bounds of a character
+     * sequence as {@link Integer#parseInt(String)} parses the trimmed value,
+     * without copying it.
+     */
+    static int parseInt(CharSequence s, int begin, int end) throws ParseException
+    {
+        return (int) parseInteger(s, begin, end, Integer.MIN_VALUE, Integer.MAX_VALUE, "an int");
+    }
+
+    static long parseLong(String value) throws ParseException
+    {
+        return parseLong(value, 0, value.length());
+    }
+
+    /**
+     * Parses the long found between the specified bounds of a character
+     * sequence as {@link Long#parseLong(String)} parses the trimmed value,
+     * without copying it.
+     */
+    static long parseLong(CharSequence s, int begin, int end) throws ParseException
+    {
+        return parseInteger(s, begin, end, Long.MIN_VALUE, Long.MAX_VALUE, "a long");
+    }
+
+    private static long parseInteger(CharSequence s, int begin, int end, long min, long max, String type)
+            throws ParseException
+    {
+        // trimmed as by String.trim
+        int from = begin;
+        int to = end;
+        while (from < to && s.charAt(from) <= ' ')
+        {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) <= ' ')
+        {
+            to--;
+        }
+
+        boolean negative = from < to && s.charAt(from) == '-';
+        if (from < to && (negative || s.charAt(from) == '+'))
+        {
+            from++;
+        }
+
+        // accumulated negatively, as the magnitude of min exceeds max
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        boolean valid = from < to;
+        for (int i = from; i < to && valid; i++)
+        {
+            int digit = Character.digit(s.charAt(i), 10);
+            valid = digit >= 0 && result >= multiplyLimit && result * 10 >= limit + digit;
+            result = result * 10 - digit;
+        }
+
+        if (!valid)
+        {
+            throw new ParseException("Unable to convert '" + s.subSequence(begin, end) + "' to " + type);
+        }
+        return negative ? result : -result;
+    }
+
+    static double parseDouble(String value) throws ParseException
+    {
+        // avoid the exception of parseDouble on the common failure
+        if (!NumberLexer.isNumber(value))
+        {
+            throw new ParseException("Unable to convert '" + value + "' to a double");
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Accepts <code>true</code>, <code>yes</code> and <code>1</code>, or
+     * <code>false</code>, <code>no</code> and <code>0</code>, ignoring case.
+     */
+    static boolean parseBoolean(String value) throws ParseException
+    {
+        String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed) || "yes".equalsIgnoreCase(trimmed) || "1".equals(trimmed))
+        {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(trimmed) || "no".equalsIgnoreCase(trimmed) || "0".equals(trimmed))
+        {
+            return false;
+        }
+        throw new ParseException("Unable to convert '" + value + "' to a boolean");
+    }
+
+    private static Path parsePath(String value) throws ParseException
+    {
+        try
+        {
+            return Paths.get(value);
+        }
+        catch (InvalidPathException e)
+        {
+            throw new ParseException("Unable to convert '" + value + "' to a path: " + e.getReason());
+        }
+    }
+
+    /**
+     * Accepts the ISO-8601 format of {@link Duration#parse} (<code>PT1M30S</code>)
+     * or an integer followed by one of the units <code>ns</code>,
+     * <code>us</code>, <code>ms</code>, <code>s</code>, <code>m</code>,
+     * <code>h</code> or <code>d</code> (<code>500ms</code>).
+     */
+    static Duration parseDuration(String value) throws ParseException
+    {
+        String trimmed = value.trim();
+        int end = 0;
+        if (end < trimmed.length() && (trimmed.charAt(end) == '-' || trimmed.charAt(end) == '+'))
+        {
+            end++;
+        }
+        while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end)))
+        {
+            end++;
+        }
+
+        try
+        {
+            if (end == 0 || end == 1 && !Character.isDigit(trimmed.charAt(0)))
+            {
+                return Duration.parse(trimmed);
+            }
+
+            ChronoUnit unit = parseUnit(trimmed.substring(end));
+            if (unit != null)
+            {
+                return Duration.of(Long.parseLong(trimmed.substring(0, end)), unit);
+            }
+        }
+        catch (DateTimeParseException | NumberFormatException | ArithmeticException e)
+        {
+            // reported below
+        }
+        throw new ParseException("Unable to convert '" + value + "' to a duration");
+    }
+
+    private static ChronoUnit parseUnit(String unit)
+    {
+        switch (unit)
+        {
+            case "ns":
+                return ChronoUnit.NANOS;
+            case "us":
+                return ChronoUnit.MICROS;
+            case "ms":
+                return ChronoUnit.MILLIS;
+            case "s":
+                return ChronoUnit.SECONDS;
+            case "m":
+                return ChronoUnit.MINUTES;
+            case "h":
+                return ChronoUnit.HOURS;
+            case "d":
+                return ChronoUnit.DAYS;
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ValueConverter<?> enumConverter(final Class type)
+    {
+        return value -> {
+            try
+            {
+                return Enum.valueOf(type, value.trim());
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new ParseException("Unable to convert '" + value + "' to " + type.getSimpleName());
+            }
+        };
+    }
+}
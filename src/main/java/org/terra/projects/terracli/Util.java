@@ -0,0 +1,45 @@
+package org.terra.projects.terracli;
+
+final class Util
+{
+    private Util()
+    {
+    }
+
+    /**
+     * Removes the hyphens from the beginning of <code>str</code>.
+     */
+    static String stripLeadingHyphens(String str)
+    {
+        if (str == null)
+        {
+            return null;
+        }
+        if (str.startsWith("--"))
+        {
+            return str.substring(2, str.length());
+        }
+        else if (str.startsWith("-"))
+        {
+            return str.substring(1, str.length());
+        }
+
+        return str;
+    }
+
+    /**
+     * Removes the leading and trailing quotes from <code>str</code>, unless
+     * it holds other quotes: <code>"foo"</code> becomes <code>foo</code> but
+     * <code>"foo" "bar"</code> is left untouched.
+     */
+    static String stripLeadingAndTrailingQuotes(String str)
+    {
+        int length = str.length();
+        if (length > 1 && str.startsWith("\"") && str.endsWith("\"") && str.substring(1, length - 1).indexOf('"') == -1)
+        {
+            str = str.substring(1, length - 1);
+        }
+
+        return str;
+    }
+}
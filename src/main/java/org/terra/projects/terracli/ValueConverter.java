@@ -0,0 +1,17 @@
+package org.terra.projects.terracli;
+
+/**
+ * Converts the string value of an option to the type of the option.
+ *
+ * @param <T> the type of the converted values
+ * @see TypeHandler#register(Class, ValueConverter)
+ */
+public interface ValueConverter<T>
+{
+    /**
+     * @param value the value, never <code>null</code>
+     * @return the converted value
+     * @throws ParseException if the value cannot be converted
+     */
+    T convert(String value) throws ParseException;
+}
@@ -0,0 +1,15 @@
+package org.terra.projects.terracli;
+
+/**
+ * Receives the values an option splits from an argument, as ranges of the
+ * argument, so that no string is built until the value is needed.
+ */
+interface ValueSink
+{
+    /**
+     * @param token the argument holding the value
+     * @param begin the index of the first character of the value
+     * @param end the index following the last character of the value
+     */
+    void addValue(String token, int begin, int end);
+}
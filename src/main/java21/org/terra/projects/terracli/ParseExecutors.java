@@ -0,0 +1,22 @@
+package org.terra.projects.terracli;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor of a {@link ParseService} that is not given one.
+ * <p>
+ * This is the Java 21 version, running every parse on its own virtual
+ * thread.
+ */
+final class ParseExecutors
+{
+    private ParseExecutors()
+    {
+    }
+
+    static ExecutorService newExecutor()
+    {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
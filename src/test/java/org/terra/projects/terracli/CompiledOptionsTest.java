@@ -0,0 +1,80 @@
+package org.terra.projects.terracli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompiledOptionsTest {
+
+    private static CompiledOptions compile() {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+        options.addOption(null, "Xmx", false, "heap");
+        return options.compile();
+    }
+
+    @Test
+    public void testRegionLookups() {
+        CompiledOptions options = compile();
+        int all = options.getOptionId("a");
+
+        assertEquals(all, options.getOptionId("--all"));
+        assertEquals(all, options.getOptionId("xx--allyy", 2, 5));
+        assertEquals(-1, options.getOptionId("--al"));
+        assertTrue(options.hasShortOption("-a", 0, 2));
+        assertFalse(options.hasShortOption("--all", 0, 5));
+        assertTrue(options.hasLongOption("-all", 0, 4));
+        assertNull(options.getOption("-x", 0, 2));
+    }
+
+    @Test
+    public void testMatchingLongOptions() {
+        CompiledOptions options = compile();
+
+        assertEquals(options.getOptionId("verbose"), options.getMatchingOptionId("--verb=1", 0, 6));
+        assertEquals(-1, options.getMatchingOptionId("--ver", 0, 5));
+        assertTrue(options.hasMatchingOptions("--ver", 0, 5));
+        assertFalse(options.hasMatchingOptions("--x", 0, 3));
+        assertEquals(Arrays.asList("verbose", "version"), options.getMatchingOptions("--ver"));
+    }
+
+    @Test
+    public void testLongPrefix() {
+        CompiledOptions options = compile();
+
+        assertEquals("Xmx", options.getLongPrefix("-Xmx512m", 0, 8, 2));
+        assertEquals("Xmx", options.getLongPrefix("-Xmx1g", 0, 6, 2));
+        assertNull(options.getLongPrefix("-Xmx5", 0, 5, 2));
+        assertNull(options.getLongPrefix("-allx", 0, 5, 2));
+    }
+
+    @Test
+    public void testEmptyLongName() throws Exception {
+        Options options = new Options();
+        options.addOption("a", false, "a");
+        try {
+            new DefaultParser().parse(options, new String[] { "-=x" });
+            fail("Expected UnrecognizedOptionException");
+        } catch (UnrecognizedOptionException e) {
+            assertEquals("-=x", e.getOption());
+        }
+
+        // -=x is read as --=x, a long option with an empty name matching every long option
+        options.addOption(null, "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+        try {
+            new DefaultParser().parse(options, new String[] { "-=x" });
+            fail("Expected AmbiguousOptionException");
+        } catch (AmbiguousOptionException e) {
+            assertEquals(Arrays.asList("all", "verbose"), e.getMatchingOptions());
+        }
+    }
+}
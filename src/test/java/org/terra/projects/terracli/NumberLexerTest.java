@@ -0,0 +1,63 @@
+package org.terra.projects.terracli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NumberLexerTest {
+
+    private static boolean parses(String s) {
+        try {
+            Double.parseDouble(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testAcceptedForms() {
+        String[] accepted = { "0", "-1", "+1", "1.", ".5", "-.5", "1.5e10", "1E-3", "2e+7", " 3 ", "\t-4\n",
+                "1f", "1.5D", "0x1p3", "-0X1.8P-2", "0x.8p1", "0x1p1f", "NaN", "-NaN", "+Infinity", "-Infinity",
+                "1e999", "-1e-999", "123456789012345678901234567890" };
+        for (String s : accepted) {
+            assertTrue(s, parses(s));
+            assertTrue(s, NumberLexer.isNumber(s));
+        }
+    }
+
+    @Test
+    public void testRejectedForms() {
+        String[] rejected = { "", " ", "-", "+", ".", "-.", "e5", "1e", "1e+", "1.5.2", "--1", "+-1", "1_000",
+                "0x1", "0x1.8", "0xp1", "0x", "1ff", "1fd", "nan", "Nan", "NaNf", "Infinityf", "infinity", "Inf",
+                "-x", "-abc", "1 2", "0x1g1", "1e1.5" };
+        for (String s : rejected) {
+            assertFalse(s, parses(s));
+            assertFalse(s, NumberLexer.isNumber(s));
+        }
+    }
+
+    @Test
+    public void testAgreesWithParseDouble() {
+        String alphabet = "0123456789+-.eEpPxXaAfFdDNI ";
+        Random random = new Random(42);
+        StringBuilder s = new StringBuilder();
+        for (int n = 0; n < 500000; n++) {
+            s.setLength(0);
+            if (random.nextInt(4) == 0) {
+                // reach the hexadecimal forms more often
+                s.append("0x");
+            }
+            int length = random.nextInt(9);
+            for (int i = 0; i < length; i++) {
+                s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String candidate = s.toString();
+            assertEquals(candidate, parses(candidate), NumberLexer.isNumber(candidate));
+        }
+    }
+}
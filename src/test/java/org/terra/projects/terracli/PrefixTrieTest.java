@@ -0,0 +1,68 @@
+package org.terra.projects.terracli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class PrefixTrieTest {
+
+    private final PrefixTrie trie = new PrefixTrie(Arrays.asList("version", "verbose", "all", "block-size", "v"));
+
+    @Test
+    public void testIndexOf() {
+        assertEquals(0, trie.indexOf("version", 0, 7));
+        assertEquals(4, trie.indexOf("v", 0, 1));
+        assertEquals(2, trie.indexOf("--all", 2, 5));
+        assertEquals(-1, trie.indexOf("vers", 0, 4));
+        assertEquals(-1, trie.indexOf("versions", 0, 8));
+    }
+
+    @Test
+    public void testMatchIndexOf() {
+        assertEquals(1, trie.matchIndexOf("verb", 0, 4));
+        assertEquals(3, trie.matchIndexOf("--b=1", 2, 3));
+        // an exact name wins over the longer names it is a prefix of
+        assertEquals(4, trie.matchIndexOf("v", 0, 1));
+        assertEquals(-1, trie.matchIndexOf("ver", 0, 3));
+        assertEquals(-1, trie.matchIndexOf("x", 0, 1));
+    }
+
+    @Test
+    public void testGetMatching() {
+        assertEquals(Arrays.asList("version", "verbose"), trie.getMatching("ver", 0, 3));
+        assertEquals(Arrays.asList("verbose"), trie.getMatching("verb", 0, 4));
+        assertEquals(Arrays.asList("v"), trie.getMatching("v", 0, 1));
+        assertEquals(Arrays.asList("version", "verbose", "all", "block-size", "v"), trie.getMatching("", 0, 0));
+        assertEquals(Collections.emptyList(), trie.getMatching("x", 0, 1));
+    }
+
+    @Test
+    public void testHasMatch() {
+        assertTrue(trie.hasMatch("--ve", 2, 4));
+        assertFalse(trie.hasMatch("vx", 0, 2));
+
+        PrefixTrie empty = new PrefixTrie(Collections.<String>emptyList());
+        assertFalse(empty.hasMatch("", 0, 0));
+        assertEquals(-1, empty.matchIndexOf("", 0, 0));
+    }
+
+    @Test
+    public void testGetLongestPrefix() {
+        PrefixTrie prefixes = new PrefixTrie(Arrays.asList("D", "Xmx", "Xmxx"));
+
+        assertEquals("Xmx", prefixes.getLongestPrefix("-Xmx512m", 1, 8, 2, 5));
+        assertEquals("Xmxx", prefixes.getLongestPrefix("Xmxx1", 0, 5, 2, 4));
+        // the maximum length leaves room for the value
+        assertEquals("Xmx", prefixes.getLongestPrefix("Xmxx1", 0, 5, 2, 3));
+        assertNull(prefixes.getLongestPrefix("Xmx5", 0, 4, 2, 2));
+        // the minimum length skips the short names
+        assertNull(prefixes.getLongestPrefix("Dkey", 0, 4, 2, 2));
+        assertEquals("D", prefixes.getLongestPrefix("Dkey", 0, 4, 1, 3));
+    }
+}
@@ -0,0 +1,148 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CachingCommandLineParser;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.ParseListener;
+
+public class CachingCommandLineParserTest {
+
+    @Test
+    public void testRepeatedParsesAreCached() throws Exception {
+        CachingCommandLineParser parser = new CachingCommandLineParser(new DefaultParser(), 10, 1000);
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        String[] arguments = { "-a", "file" };
+
+        CommandLine first = parser.parse(options, arguments);
+        arguments[1] = "other";
+        CommandLine second = parser.parse(options, new String[] { "-a", "file" });
+
+        assertSame(first, second);
+        assertEquals("file", second.getArgs()[0]);
+        assertNotSame(first, parser.parse(options, arguments));
+        assertNotSame(first, parser.parse(options, new String[] { "-a", "file" }, true));
+        assertEquals(1, parser.getHitCount());
+        assertEquals(3, parser.getMissCount());
+    }
+
+    @Test
+    public void testAddingOptionsInvalidatesEntries() throws Exception {
+        CachingCommandLineParser parser = new CachingCommandLineParser(new DefaultParser(), 10, 1000);
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+
+        CommandLine first = parser.parse(options, new String[] { "-b" }, true);
+        assertEquals("-b", first.getArgs()[0]);
+
+        options.addOption("b", "block", false, "block");
+        CommandLine second = parser.parse(options, new String[] { "-b" }, true);
+        assertTrue(second.hasOption("b"));
+        assertEquals(0, parser.getHitCount());
+        assertEquals(1, parser.size());
+    }
+
+    @Test
+    public void testEntryKeyedByTableParsedAgainst() throws Exception {
+        final Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        // adds an option between the lookup and the parse, as another thread could
+        DefaultParser changing = new DefaultParser() {
+            @Override
+            public CommandLine parse(Options opts, String[] arguments, boolean stopAtNonOption) throws ParseException {
+                if (!opts.hasOption("b")) {
+                    opts.addOption("b", "block", false, "block");
+                }
+                return super.parse(opts, arguments, stopAtNonOption);
+            }
+        };
+        CachingCommandLineParser parser = new CachingCommandLineParser(changing, 10, 1000);
+
+        CommandLine first = parser.parse(options, new String[] { "-b" });
+        assertTrue(first.hasOption("b"));
+        assertSame(first, parser.parse(options, new String[] { "-b" }));
+        assertEquals(1, parser.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        // three entries, weighing 8 at most
+        CachingCommandLineParser parser = new CachingCommandLineParser(new DefaultParser(), 3, 8);
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+
+        CommandLine x = parser.parse(options, new String[] { "x" });
+        parser.parse(options, new String[] { "y" });
+        parser.parse(options, new String[] { "x" });
+        parser.parse(options, new String[] { "z" });
+        parser.parse(options, new String[] { "w" });
+
+        // y was the least recently used
+        assertEquals(3, parser.size());
+        assertEquals(1, parser.getEvictionCount());
+        assertSame(x, parser.parse(options, new String[] { "x" }));
+
+        // weighs 7, one per argument plus their characters, evicting every other entry
+        parser.parse(options, new String[] { "-a", "abc" });
+        assertEquals(1, parser.size());
+        assertEquals(4, parser.getEvictionCount());
+    }
+
+    @Test
+    public void testListenerCalledOutsideOfLock() throws Exception {
+        final CachingCommandLineParser parser = new CachingCommandLineParser(new DefaultParser(), 10, 1000);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final List<Integer> sizes = new ArrayList<Integer>();
+
+        // another thread reading the cache while the listener runs must not block
+        ParseListener listener = new ParseListener() {
+            private void readSize() {
+                try {
+                    sizes.add(executor.submit(parser::size).get(10, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            @Override
+            public void cacheHit() {
+                readSize();
+            }
+
+            @Override
+            public void cacheMiss() {
+                readSize();
+            }
+        };
+        parser.setParseListener(listener);
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        try {
+            parser.parse(options, new String[] { "-a" });
+            parser.parse(options, new String[] { "-a" });
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Arrays.asList(0, 1), sizes);
+    }
+}
@@ -0,0 +1,204 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.CompiledOptions;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.OptionOccurrence;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+
+public class CommandLineTest {
+
+    @Test
+    public void testOccurrencesShareDefinitions() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-Dk=v", "-a", "-Dx=y", "file" });
+
+        List<OptionOccurrence> occurrences = cmd.getOccurrences();
+        assertEquals(3, occurrences.size());
+
+        assertSame(options.getOption("D"), occurrences.get(0).getOption());
+        assertArrayEquals(new String[] { "k", "v" }, occurrences.get(0).getValues());
+        assertNull(occurrences.get(1).getValues());
+        assertEquals("x", occurrences.get(2).getValue());
+        assertEquals(Arrays.asList("x", "y"), occurrences.get(2).getValuesList());
+
+        assertArrayEquals(new String[] { "k", "v", "x", "y" }, cmd.getOptionValues("D"));
+        assertTrue(cmd.hasOption("all"));
+        assertEquals(Arrays.asList("file"), cmd.getArgList());
+
+        // the definitions are never given the parsed values
+        assertNull(options.getOption("D").getValues());
+    }
+
+    @Test
+    public void testLookupsById() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option option = new Option("D", "property", false, "property");
+        option.setArgs(Option.UNLIMITED_VALUES);
+        option.setValueSeperator('=');
+        options.addOption(option);
+
+        CompiledOptions compiled = options.compile();
+        int all = compiled.getOptionId("all");
+        int property = compiled.getOptionId("-D");
+
+        assertEquals(0, all);
+        assertEquals(1, property);
+        assertEquals(-1, compiled.getOptionId("z"));
+
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-Dk=v", "-Dx=y" });
+        assertFalse(cmd.hasOptionById(all));
+        assertTrue(cmd.hasOptionById(property));
+        assertFalse(cmd.hasOptionById(-1));
+        assertEquals("k", cmd.getOptionValueById(property));
+        assertArrayEquals(new String[] { "k", "v", "x", "y" }, cmd.getOptionValuesById(property));
+        assertNull(cmd.getOptionValuesById(all));
+    }
+
+    @Test
+    public void testValuesAreCutOnDemand() throws Exception {
+        String quoted = "\"a b\"";
+        String file = "file.txt";
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+        options.addOption(typed("f", String.class));
+
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-Dk=v", "-f", file, quoted });
+
+        assertArrayEquals(new String[] { "k", "v" }, cmd.getOptionValues("D"));
+        assertSame(file, cmd.getOptionValue("f"));
+        assertEquals(Arrays.asList(file, "a b"), cmd.getOptionValuesList("f"));
+        assertSame(cmd.getOptionValuesList("f"), cmd.getOptionValuesList("f"));
+        assertTrue(cmd.getOptionValuesList("all").isEmpty());
+
+        try {
+            cmd.getOptionValuesList("D").add("x");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static Option typed(String opt, Class<?> type) {
+        Option option = new Option(opt, null);
+        option.setArgs(Option.UNLIMITED_VALUES);
+        option.setType(type);
+        return option;
+    }
+
+    @Test
+    public void testTypedValues() throws Exception {
+        Options options = new Options();
+        options.addOption(typed("n", int.class));
+        options.addOption(typed("t", Duration.class));
+        options.addOption(typed("u", TimeUnit.class));
+        options.addOption(typed("p", Path.class));
+        options.addOption(typed("s", String.class));
+
+        CommandLine cmd = new DefaultParser().parse(options,
+                new String[] { "-n", "42", "-t", "500ms", "-u", "SECONDS", "-p", "a/b", "-s", "7" });
+
+        assertEquals(42, cmd.getIntValue("n", 0));
+        assertEquals(42L, cmd.getLongValue("n", 0));
+        assertEquals(7.0, cmd.getDoubleValue("s", 0), 0.0);
+        assertEquals(-1, cmd.getIntValue("x", -1));
+        assertEquals(Integer.valueOf(42), cmd.getParsedOptionValue("n"));
+        assertSame(cmd.getParsedOptionValue("t"), cmd.getOccurrences().get(1).getParsedValue());
+        assertEquals(Duration.ofMillis(500), cmd.getParsedOptionValue("t"));
+        assertEquals(TimeUnit.SECONDS, cmd.getParsedOptionValue("u"));
+        assertEquals(Paths.get("a/b"), cmd.getParsedOptionValue("p"));
+        assertEquals("7", cmd.getParsedOptionValue("s"));
+
+        try {
+            cmd.getIntValue("u", 0);
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIntValuesFromArgumentRegions() throws Exception {
+        Options options = new Options();
+        options.addOption(typed("n", String.class));
+        options.addOption(typed("m", String.class));
+        options.addOption(typed("l", String.class));
+        options.addOption(typed("o", String.class));
+
+        CommandLine cmd = new DefaultParser().parse(options,
+                new String[] { "-n=-2147483648", "-m", " +17 ", "-l=9223372036854775807", "-o", "2147483648" });
+
+        assertEquals(Integer.MIN_VALUE, cmd.getIntValue("n", 0));
+        assertEquals(17, cmd.getIntValue("m", 0));
+        assertEquals(Long.MAX_VALUE, cmd.getLongValue("l", 0));
+        assertEquals(2147483648L, cmd.getLongValue("o", 0));
+
+        for (String opt : new String[] { "o", "l" }) {
+            try {
+                cmd.getIntValue(opt, 0);
+                fail("Expected ParseException");
+            } catch (ParseException e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("' to an int"));
+            }
+        }
+    }
+
+    @Test
+    public void testValueSeparatorKeepsEmptyParts() throws Exception {
+        Options options = new Options();
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(2);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-Dk=" });
+        assertArrayEquals(new String[] { "k", "" }, cmd.getOptionValues("D"));
+
+        cmd = new DefaultParser().parse(options, new String[] { "-Dk" });
+        assertArrayEquals(new String[] { "k" }, cmd.getOptionValues("D"));
+
+        cmd = new DefaultParser().parse(options, new String[] { "-Dk==v" });
+        assertArrayEquals(new String[] { "k", "=v" }, cmd.getOptionValues("D"));
+
+        options = new Options();
+        property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        cmd = new DefaultParser().parse(options, new String[] { "-Dk==v" });
+        assertArrayEquals(new String[] { "k", "", "v" }, cmd.getOptionValues("D"));
+    }
+}
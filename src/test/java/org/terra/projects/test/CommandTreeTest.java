@@ -0,0 +1,97 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CommandTree;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.ParsedCommand;
+import org.terra.projects.terracli.UnrecognizedOptionException;
+
+public class CommandTreeTest {
+
+    private final AtomicInteger built = new AtomicInteger();
+
+    private Supplier<Options> flag(final String opt) {
+        return () -> {
+            built.incrementAndGet();
+            Options options = new Options();
+            options.addOption(opt, false, opt);
+            return options;
+        };
+    }
+
+    private CommandTree createTree() {
+        CommandTree tree = new CommandTree(flag("v"));
+        tree.addSubcommand("remote", flag("q")).addSubcommand("add", flag("f"));
+        for (int i = 0; i < 100; i++) {
+            tree.addSubcommand("command" + i, flag("x"));
+        }
+        return tree;
+    }
+
+    @Test
+    public void testParseBuildsChosenOptionsOnly() throws Exception {
+        CommandTree tree = createTree();
+        ParsedCommand root = tree.parse(new DefaultParser(), new String[] { "-v", "remote", "-q", "add", "-f", "origin" });
+
+        assertEquals(3, built.get());
+        assertFalse(tree.getSubcommand("command0").isLoaded());
+
+        assertTrue(root.getCommandLine().hasOption("v"));
+        assertEquals(Arrays.asList("remote", "add"), root.getPath());
+        assertTrue(root.getSubcommand().getCommandLine().hasOption("q"));
+
+        ParsedCommand leaf = root.getLeaf();
+        assertEquals("add", leaf.getName());
+        assertTrue(leaf.getCommandLine().hasOption("f"));
+        assertEquals(Arrays.asList("origin"), leaf.getCommandLine().getArgList());
+
+        // the options are kept for the next parse
+        tree.parse(new DefaultParser(), new String[] { "remote", "add" });
+        assertEquals(3, built.get());
+    }
+
+    @Test
+    public void testParseWithoutSubcommand() throws Exception {
+        ParsedCommand root = createTree().parse(new DefaultParser(), new String[] { "-v" });
+
+        assertNull(root.getSubcommand());
+        assertTrue(root.getPath().isEmpty());
+        assertEquals(1, built.get());
+    }
+
+    @Test
+    public void testUnknownSubcommandOrOption() throws Exception {
+        try {
+            createTree().parse(new DefaultParser(), new String[] { "-v", "bogus" });
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            assertEquals("Unknown command: bogus", e.getMessage());
+        }
+
+        try {
+            createTree().parse(new DefaultParser(), new String[] { "-z", "remote" });
+            fail("Expected UnrecognizedOptionException");
+        } catch (UnrecognizedOptionException e) {
+            // expected
+        }
+
+        try {
+            createTree().parse(new DefaultParser(), new String[] { "remote", "add", "-z" });
+            fail("Expected UnrecognizedOptionException");
+        } catch (UnrecognizedOptionException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.OptionGroup;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.ParseResult;
+
+public class DefaultParserConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 2000;
+
+    private static final String[] TOKENS = {
+        "-a", "-b", "-ab", "--all", "--al", "--block", "--verbose", "--ver", "-Dkey=value",
+        "-Dflag", "-n", "-1", "-2.5", "--", "file.txt", "-z", "--unknown", "-", "\"quoted\"", "-r",
+        "-p", "--quiet"
+    };
+
+    private static List<String[]> createArguments(int count) {
+        Random random = new Random(42);
+        List<String[]> arguments = new ArrayList<String[]>(count);
+        for (int i = 0; i < count; i++) {
+            String[] args = new String[random.nextInt(8)];
+            for (int j = 0; j < args.length; j++) {
+                args[j] = TOKENS[random.nextInt(TOKENS.length)];
+            }
+            arguments.add(args);
+        }
+        return arguments;
+    }
+
+    private static String describe(DefaultParser parser, Options options, String[] args, boolean stopAtNonOption) {
+        try {
+            return describe(options, parser.parse(options, args, stopAtNonOption));
+        } catch (ParseException e) {
+            return describe(e);
+        }
+    }
+
+    private static String describe(Options options, CommandLine cmd) {
+        StringBuilder buf = new StringBuilder();
+        for (Option option : options.getOptions()) {
+            String key = option.getKey();
+            if (cmd.hasOption(key)) {
+                buf.append(key).append(Arrays.toString(cmd.getOptionValues(key))).append(' ');
+            }
+        }
+        return buf.append(cmd.getArgList()).toString();
+    }
+
+    private static String describe(ParseException e) {
+        return e.getClass().getName() + ": " + e.getMessage();
+    }
+
+    @Test
+    public void testSharedParserMatchesSingleThreadedResults() throws Exception {
+        final DefaultParser parser = new DefaultParser();
+        final Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption("b", "block", false, "block");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        Option numbers = new Option("n", "numbers", false, "numbers");
+        numbers.setArgs(Option.UNLIMITED_VALUES);
+        options.addOption(numbers);
+
+        options.addRequiredOption("r", "required", false, "required");
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        options.addOptionGroup(group);
+
+        final List<String[]> arguments = createArguments(500);
+
+        final List<String> expected = new ArrayList<String>();
+        for (String[] args : arguments) {
+            expected.add(describe(new DefaultParser(), options, args, args.length % 2 == 0));
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        int mismatches = 0;
+                        for (int round = 0; round < ROUNDS; round++) {
+                            int i = (offset * 31 + round * 7) % arguments.size();
+                            String[] args = arguments.get(i);
+                            if (!expected.get(i).equals(describe(parser, options, args, args.length % 2 == 0))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(0), result.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParseAllMatchesSequentialResults() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption("b", "block", false, "block");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        Option numbers = new Option("n", "numbers", false, "numbers");
+        numbers.setArgs(Option.UNLIMITED_VALUES);
+        options.addOption(numbers);
+
+        options.addRequiredOption("r", "required", false, "required");
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        options.addOptionGroup(group);
+
+        List<String[]> arguments = createArguments(5000);
+
+        ForkJoinPool pool = new ForkJoinPool(THREADS);
+        try {
+            List<ParseResult> results = new DefaultParser().parseAll(options, arguments, pool);
+
+            assertEquals(arguments.size(), results.size());
+            for (int i = 0; i < arguments.size(); i++) {
+                ParseResult result = results.get(i);
+                assertSame(arguments.get(i), result.getArguments());
+                String actual = result.isSuccess()
+                        ? describe(options, result.getCommandLine())
+                        : describe(result.getException());
+                assertEquals(describe(new DefaultParser(), options, arguments.get(i), false), actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGroupSelectionKeptInCommandLine() throws Exception {
+        Options options = new Options();
+        options.addRequiredOption("r", "required", false, "required");
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        options.addOptionGroup(group);
+
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-r", "-p" });
+        assertEquals("p", cmd.getSelected(group));
+        assertNull(group.getSelected());
+
+        cmd = new DefaultParser().parse(options, new String[] { "-r" });
+        assertNull(cmd.getSelected(group));
+    }
+}
@@ -0,0 +1,242 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terra.projects.terracli.AlreadySelectedException;
+import org.terra.projects.terracli.ArgumentHandler;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.MissingOptionException;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.OptionGroup;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseEventHandler;
+import org.terra.projects.terracli.ParseException;
+
+public class DefaultParserStreamingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class Collector implements ArgumentHandler {
+        final List<String> arguments = new ArrayList<String>();
+
+        @Override
+        public void handleArgument(String argument) {
+            arguments.add(argument);
+        }
+    }
+
+    @Test
+    public void testIteratorArgumentsGoToHandler() throws Exception {
+        Collector collector = new Collector();
+        List<String> arguments = Arrays.asList("one", "-a", "two", "--", "-D");
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        CommandLine cmd = new DefaultParser().parse(options, arguments.iterator(), collector, false);
+
+        assertTrue(cmd.hasOption("a"));
+        assertEquals(Arrays.asList("one", "two", "-D"), collector.arguments);
+        assertTrue(cmd.getArgList().isEmpty());
+    }
+
+    @Test
+    public void testReaderTokenizesLikeShell() throws Exception {
+        String input = "-a  \"two words\" 'single \"quoted\"' -Dk=\"v w\"\n"
+                + "C:\\dir\\file escaped\\ space \"\"";
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        CommandLine cmd = new DefaultParser().parse(options, new StringReader(input), null, false);
+
+        assertTrue(cmd.hasOption("all"));
+        assertArrayEquals(new String[] { "k", "v w" }, cmd.getOptionValues("D"));
+        assertEquals(Arrays.asList("two words", "single \"quoted\"", "C:\\dir\\file", "escaped space", ""),
+                cmd.getArgList());
+    }
+
+    private static class Recorder implements ParseEventHandler {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void handleArgument(String argument) {
+            events.add("arg " + argument);
+        }
+
+        @Override
+        public void handleOption(int id, Option option) {
+            events.add("option " + id + " " + option.getKey());
+        }
+
+        @Override
+        public void handleValue(int id, String value) {
+            events.add("value " + id + " " + value);
+        }
+    }
+
+    @Test
+    public void testEventsInCommandLineOrder() throws Exception {
+        Recorder recorder = new Recorder();
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        new DefaultParser().parseEvents(options, new String[] { "-Dk=v", "file", "-a", "-Dx=y" }, recorder, false);
+
+        assertEquals(Arrays.asList("option 1 D", "value 1 k", "value 1 v", "arg file", "option 0 a",
+                "option 1 D", "value 1 x", "value 1 y"), recorder.events);
+    }
+
+    @Test
+    public void testEventModeChecksRequiredOptionsAndGroups() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        options.addRequiredOption("r", "required", false, "required");
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        options.addOptionGroup(group);
+
+        try {
+            new DefaultParser().parseEvents(options, new String[] { "-a" }, new Recorder(), false);
+            fail("Expected MissingOptionException");
+        } catch (MissingOptionException e) {
+            // expected
+        }
+
+        try {
+            new DefaultParser().parseEvents(options, Arrays.asList("-r", "-p", "-q").iterator(), new Recorder(), false);
+            fail("Expected AlreadySelectedException");
+        } catch (AlreadySelectedException e) {
+            // expected
+        }
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testResponseFileExpansion() throws Exception {
+        File inner = write("inner.txt", "-Dx=y \"caf\u00e9 cr\u00e8me\"");
+        File outer = write("outer.txt", "one -a\n@" + inner.getPath() + "\ntwo");
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        options.addOption(property);
+
+        CommandLine cmd = new DefaultParser(true).parse(options,
+                new String[] { "@" + outer.getPath(), "three", "--", "@" + outer.getPath() });
+
+        assertTrue(cmd.hasOption("a"));
+        assertArrayEquals(new String[] { "x", "y" }, cmd.getOptionValues("D"));
+        assertEquals(Arrays.asList("one", "caf\u00e9 cr\u00e8me", "two", "three", "@" + outer.getPath()),
+                cmd.getArgList());
+    }
+
+    @Test
+    public void testLargeResponseFileExpansion() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            content.append("arg").append(i).append('\n');
+        }
+        File file = write("large.txt", content.toString());
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        CommandLine cmd = new DefaultParser(true).parse(options, new String[] { "-a", "@" + file.getPath() });
+
+        assertTrue(cmd.hasOption("a"));
+        assertEquals(20000, cmd.getArgList().size());
+        assertEquals("arg19999", cmd.getArgList().get(19999));
+    }
+
+    @Test
+    public void testMissingResponseFile() throws Exception {
+        File missing = new File(folder.getRoot(), "missing.txt");
+        try {
+            new DefaultParser(true).parse(new Options(), new String[] { "@" + missing.getPath() });
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testInvalidResponseFilePath() throws Exception {
+        try {
+            new DefaultParser(true).parse(new Options(), new String[] { "@bad\u0000name" });
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            assertTrue(e.getCause() instanceof InvalidPathException);
+        }
+    }
+
+    @Test
+    public void testRecursiveResponseFile() throws Exception {
+        File first = new File(folder.getRoot(), "first.txt");
+        File second = write("second.txt", "-a @" + first.getPath());
+        write("first.txt", "@" + second.getPath());
+
+        try {
+            Options options = new Options();
+            options.addOption("a", "all", false, "all");
+
+            Option property = new Option("D", "property", false, "property");
+            property.setArgs(Option.UNLIMITED_VALUES);
+            property.setValueSeperator('=');
+            options.addOption(property);
+
+            new DefaultParser(true).parse(options, new String[] { "@" + first.getPath() });
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Recursive response file"));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.terra.projects.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -59,4 +60,34 @@ public class OptionUnitTest {
         assertEquals("test", option.getValue("default"));
     }
     
+    @Test
+    public void testValueSeparatorSplitting() {
+        Option option = new Option("D", null);
+        option.setArgs(Option.UNLIMITED_VALUES);
+        option.setValueSeperator('.');
+
+        option.addValueForProcessing("a.b..c");
+        assertArrayEquals(new String[] { "a", "b", "", "c" }, option.getValues());
+    }
+
+    @Test
+    public void testValueSeparatorSplittingStopsAtArgumentLimit() {
+        Option option = new Option("D", null);
+        option.setArgs(2);
+        option.setValueSeperator('=');
+
+        option.addValueForProcessing("key=value=more");
+        assertArrayEquals(new String[] { "key", "value=more" }, option.getValues());
+    }
+
+    @Test
+    public void testValueSeparatorKeepsTrailingEmptyPart() {
+        Option option = new Option("D", null);
+        option.setArgs(2);
+        option.setValueSeperator('=');
+
+        option.addValueForProcessing("key=");
+        assertArrayEquals(new String[] { "key", "" }, option.getValues());
+    }
+
 }
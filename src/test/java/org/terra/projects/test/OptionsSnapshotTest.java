@@ -0,0 +1,169 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terra.projects.terracli.AlreadySelectedException;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.CompiledOptions;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.MissingOptionException;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.OptionGroup;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.OptionsSnapshot;
+
+public class OptionsSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadMappedFile() throws Exception {
+        Options definition = new Options();
+        definition.addOption("a", "all", false, "all");
+        definition.addOption(null, "verbose", false, "verbose");
+        definition.addOption(null, "version", false, "version");
+        definition.addRequiredOption("r", "required", false, "required");
+
+        Option property = new Option("D", "property", false, "property");
+        property.setArgs(Option.UNLIMITED_VALUES);
+        property.setValueSeperator('=');
+        definition.addOption(property);
+
+        Option count = new Option("n", "count", false, "count");
+        count.setArgs(Option.UNLIMITED_VALUES);
+        count.setType(int.class);
+        count.setArgName("number");
+        definition.addOption(count);
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        group.setRequired(true);
+        definition.addOptionGroup(group);
+
+        Path file = folder.newFile("options.bin").toPath();
+        OptionsSnapshot.write(definition, file);
+
+        Options options = OptionsSnapshot.load(file);
+        CompiledOptions compiled = options.compile();
+        CompiledOptions expected = definition.compile();
+
+        assertEquals(expected.getOptionCount(), compiled.getOptionCount());
+        for (int id = 0; id < expected.getOptionCount(); id++) {
+            Option option = compiled.getOption(id);
+            assertEquals(expected.getOption(id).toString(), option.toString());
+            assertEquals(expected.getOption(id).getDescription(), option.getDescription());
+            assertEquals(expected.getOption(id).getArgName(), option.getArgName());
+            assertEquals(expected.getOption(id).getType(), option.getType());
+            assertSame(option, options.getOption(option.getKey()));
+        }
+        assertEquals(Arrays.asList("verbose", "version"), options.getMatchingOptions("ver"));
+        assertEquals(Arrays.asList("r", compiled.getOptionGroup(compiled.getOptionId("p"))),
+                options.getRequiredOptions());
+
+        CommandLine cmd = new DefaultParser().parse(options,
+                new String[] { "--verb", "-r", "-Dk=v", "--count", "7", "-q", "file" });
+        assertTrue(cmd.hasOption("verbose"));
+        assertArrayEquals(new String[] { "k", "v" }, cmd.getOptionValues("D"));
+        assertEquals(7, cmd.getIntValue("n", 0));
+        assertEquals(Arrays.asList("file"), cmd.getArgList());
+
+        try {
+            new DefaultParser().parse(options, new String[] { "-a" });
+            fail("Expected MissingOptionException");
+        } catch (MissingOptionException e) {
+            assertEquals(2, e.getMissingOptions().size());
+        }
+        try {
+            new DefaultParser().parse(options, new String[] { "-r", "-p", "-q" });
+            fail("Expected AlreadySelectedException");
+        } catch (AlreadySelectedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectsOtherContent() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OptionsSnapshot.write(options, out);
+        byte[] bytes = out.toByteArray();
+
+        try {
+            OptionsSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length / 2)));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Truncated options snapshot", e.getMessage());
+        }
+
+        bytes[0] = 'X';
+        try {
+            OptionsSnapshot.read(ByteBuffer.wrap(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Not an options snapshot", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptContent() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addRequiredOption("r", "required", false, "required");
+
+        Option count = new Option("n", "count", false, "count");
+        count.setArgs(Option.UNLIMITED_VALUES);
+        count.setType(int.class);
+        options.addOption(count);
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        group.setRequired(true);
+        options.addOptionGroup(group);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OptionsSnapshot.write(options, out);
+        byte[] bytes = out.toByteArray();
+
+        // a damaged snapshot is either read or rejected, never failing otherwise
+        for (int i = 8; i < bytes.length; i++) {
+            for (int mask : new int[] { 0x01, 0x80, 0xFF }) {
+                byte[] corrupt = bytes.clone();
+                corrupt[i] ^= mask;
+                try {
+                    OptionsSnapshot.read(ByteBuffer.wrap(corrupt));
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        }
+
+        // the number of strings
+        bytes[8] = (byte) 0x80;
+        try {
+            OptionsSnapshot.read(ByteBuffer.wrap(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Corrupt options snapshot", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.terra.projects.terracli.AmbiguousOptionException;
+import org.terra.projects.terracli.CachingCommandLineParser;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.ParseMetrics;
+import org.terra.projects.terracli.UnrecognizedOptionException;
+
+public class ParseMetricsTest {
+
+    private static void parseFailing(DefaultParser parser, Options options, String... arguments) {
+        try {
+            parser.parse(options, arguments);
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRecordsParses() throws Exception {
+        ParseMetrics metrics = new ParseMetrics();
+        DefaultParser parser = new DefaultParser();
+        parser.setParseListener(metrics);
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+
+
+        parser.parse(options, new String[] { "-a", "--verb", "file" });
+        Properties properties = new Properties();
+        properties.setProperty("all", "true");
+        parser.parse(options, new String[] { "file" }, properties);
+        parseFailing(parser, options, "--ver");
+        parseFailing(parser, options, "-a", "-x");
+
+        assertEquals(4, metrics.getParseLatency().getCount());
+        assertEquals(7, metrics.getTokenCount());
+        assertEquals(3, metrics.getMaxTokens());
+        assertEquals(1, metrics.getTokenPercentile(0.5));
+        assertEquals(3, metrics.getTokenPercentile(0.99));
+        assertEquals(1, metrics.getPropertiesLatency().getCount());
+        assertEquals(1, metrics.getFailureCount(AmbiguousOptionException.class));
+        assertEquals(1, metrics.getFailureCount(UnrecognizedOptionException.class));
+        assertEquals(2, metrics.getFailureCount());
+
+        String json = metrics.toJson();
+        assertTrue(json, json.startsWith("{\"parses\":4,\"latency\":{\"count\":4,"));
+        assertTrue(json, json.contains(",\"tokens\":{\"total\":7,\"average\":1,\"p50\":1,\"p99\":3,\"max\":3}"));
+        assertTrue(json, json.contains(
+                ",\"failures\":{\"AmbiguousOptionException\":1,\"UnrecognizedOptionException\":1}"));
+        assertTrue(json, json.endsWith(",\"cache\":{\"hits\":0,\"misses\":0}}"));
+
+        parser.setParseListener(null);
+        parser.parse(options, new String[] { "-a" });
+        assertEquals(4, metrics.getParseLatency().getCount());
+    }
+
+    @Test
+    public void testRecordsCacheHits() throws Exception {
+        ParseMetrics metrics = new ParseMetrics();
+        CachingCommandLineParser parser = new CachingCommandLineParser(new DefaultParser(), 10, 1000);
+        parser.setParseListener(metrics);
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+        options.addOption(null, "verbose", false, "verbose");
+        options.addOption(null, "version", false, "version");
+
+
+        parser.parse(options, new String[] { "-a" });
+        parser.parse(options, new String[] { "-a" });
+        parser.parse(options, new String[] { "--all" });
+
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(2, metrics.getCacheMissCount());
+
+        metrics.reset();
+        assertEquals("{\"parses\":0,\"latency\":{\"count\":0,\"average\":0,\"p50\":0,\"p99\":0,\"max\":0},"
+                + "\"tokens\":{\"total\":0,\"average\":0,\"p50\":0,\"p99\":0,\"max\":0},\"failures\":{},"
+                + "\"properties\":{\"count\":0,\"average\":0,\"p50\":0,\"p99\":0,\"max\":0},"
+                + "\"cache\":{\"hits\":0,\"misses\":0}}", metrics.toJson());
+    }
+}
@@ -0,0 +1,124 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.ParseException;
+import org.terra.projects.terracli.ParseService;
+
+public class ParseServiceTest {
+
+    @Test
+    public void testParseAsync() throws Exception {
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        try (ParseService service = new ParseService(options, 4)) {
+            List<CompletableFuture<CommandLine>> futures = new ArrayList<CompletableFuture<CommandLine>>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(service.parseAsync(new String[] { "-a", "file" + i }));
+            }
+            CompletableFuture<CommandLine> failure = service.parseAsync(new String[] { "-z" });
+
+            for (int i = 0; i < futures.size(); i++) {
+                CommandLine cmd = futures.get(i).get(1, TimeUnit.MINUTES);
+                assertTrue(cmd.hasOption("a"));
+                assertEquals("file" + i, cmd.getArgs()[0]);
+            }
+            try {
+                failure.get(1, TimeUnit.MINUTES);
+                fail("Expected ParseException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ParseException);
+            }
+
+            ParseService.Statistics statistics = service.getStatistics();
+            assertEquals(100, statistics.getCompleted());
+            assertEquals(1, statistics.getFailed());
+            assertEquals(0, statistics.getInFlight());
+        }
+    }
+
+    @Test
+    public void testErrorFailsFutureAndFreesSlot() throws Exception {
+        DefaultParser broken = new DefaultParser() {
+            @Override
+            public CommandLine parse(Options options, String[] arguments) {
+                throw new AssertionError("broken");
+            }
+        };
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        try (ParseService service = new ParseService(options, broken, null, 1)) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    service.parseAsync(new String[] { "-a" }).get(1, TimeUnit.MINUTES);
+                    fail("Expected AssertionError");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof AssertionError);
+                }
+            }
+            assertEquals(2, service.getStatistics().getFailed());
+            assertEquals(0, service.getStatistics().getInFlight());
+        }
+    }
+
+    @Test
+    public void testTryParseAsyncRejectsOverLimit() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Executor blocked = new Executor() {
+            @Override
+            public void execute(final Runnable task) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        task.run();
+                    }
+                }).start();
+            }
+        };
+
+        Options options = new Options();
+        options.addOption("a", "all", false, "all");
+
+        try (ParseService service = new ParseService(options, new DefaultParser(), blocked, 2)) {
+            CompletableFuture<CommandLine> first = service.tryParseAsync(new String[] { "-a" });
+            CompletableFuture<CommandLine> second = service.tryParseAsync(new String[] { "-a" });
+            CompletableFuture<CommandLine> third = service.tryParseAsync(new String[] { "-a" });
+
+            assertEquals(2, service.getStatistics().getInFlight());
+            try {
+                third.get();
+                fail("Expected RejectedExecutionException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+
+            release.countDown();
+            first.get(1, TimeUnit.MINUTES);
+            second.get(1, TimeUnit.MINUTES);
+            assertTrue(service.tryParseAsync(new String[] { "-a" }).get(1, TimeUnit.MINUTES).hasOption("a"));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.terra.projects.terracli.AlreadySelectedException;
+import org.terra.projects.terracli.CompiledOptions;
+import org.terra.projects.terracli.DefaultParser;
+import org.terra.projects.terracli.MissingOptionException;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.OptionGroup;
+import org.terra.projects.terracli.Options;
+
+public class RequiredOptionsTest {
+
+    @Test
+    public void testMissingOptionsInOrder() throws Exception {
+        Options options = new Options();
+        options.addRequiredOption("a", "all", false, "all");
+        options.addRequiredOption("b", "block", false, "block");
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        group.setRequired(true);
+        options.addOptionGroup(group);
+
+        // a redefined required option moves to the end
+        options.addRequiredOption("a", "all", false, "all");
+
+        assertEquals(Arrays.asList("b", group, "a"), options.getRequiredOptions());
+
+        try {
+            new DefaultParser().parse(options, new String[] { "--all" });
+            fail("Expected MissingOptionException");
+        } catch (MissingOptionException e) {
+            assertEquals(Arrays.asList("b", group), e.getMissingOptions());
+        }
+
+        try {
+            new DefaultParser().parse(options, new String[] { "-q" });
+            fail("Expected MissingOptionException");
+        } catch (MissingOptionException e) {
+            assertEquals(Arrays.asList("b", "a"), e.getMissingOptions());
+        }
+
+        assertTrue(new DefaultParser().parse(options, new String[] { "-a", "-b", "-p" }).hasOption("print"));
+    }
+
+    @Test
+    public void testGroupsResolvedById() throws Exception {
+        Options options = new Options();
+        options.addRequiredOption("a", "all", false, "all");
+        options.addRequiredOption("b", "block", false, "block");
+
+        OptionGroup group = new OptionGroup();
+        group.addOption(new Option("p", "print", false, "print"));
+        group.addOption(new Option("q", "quiet", false, "quiet"));
+        options.addOptionGroup(group);
+
+        CompiledOptions compiled = options.compile();
+
+        assertEquals(Arrays.asList(group), compiled.getOptionGroups());
+        assertSame(compiled.getOptionGroups(), compiled.getOptionGroups());
+        assertSame(group, compiled.getOptionGroup(compiled.getOptionId("quiet")));
+        assertSame(group, compiled.getOptionGroup(compiled.getOption("p")));
+        assertNull(compiled.getOptionGroup(compiled.getOptionId("b")));
+
+        try {
+            new DefaultParser().parse(options, new String[] { "-a", "-b", "-p", "--quiet" });
+            fail("Expected AlreadySelectedException");
+        } catch (AlreadySelectedException e) {
+            assertSame(group, e.getOptionGroup());
+            assertEquals("q", e.getOption().getKey());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.terra.projects.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.terra.projects.terracli.CommandHandler;
+import org.terra.projects.terracli.CommandLine;
+import org.terra.projects.terracli.Option;
+import org.terra.projects.terracli.Options;
+import org.terra.projects.terracli.Shell;
+
+public class ShellTest {
+
+    private static final CommandHandler GREET = new CommandHandler() {
+        @Override
+        public void execute(CommandLine cmd, PrintWriter out) {
+            String greeting = "hello " + cmd.getOptionValue("n", "world") + " " + cmd.getArgList();
+            out.println(cmd.hasOption("u") ? greeting.toUpperCase() : greeting);
+        }
+    };
+
+    @Test
+    public void testRun() throws Exception {
+        StringWriter output = new StringWriter();
+        Shell shell = new Shell(new PrintWriter(output, true));
+        Options options = new Options();
+        options.addOption("u", "upper", false, "upper case");
+
+        Option name = new Option("n", "name", false, "name");
+        name.setArgs(Option.UNLIMITED_VALUES);
+        options.addOption(name);
+
+        shell.register("greet", options, GREET);
+        shell.setPrompt("");
+
+        String input = "greet a \"b c\" --name 'Ada Lovelace'\n"
+                + "\n"
+                + "  greet -u x\n"
+                + "unknown -u\n"
+                + "greet --bogus\n"
+                + "exit\n"
+                + "greet never\n";
+        shell.run(new BufferedReader(new StringReader(input)));
+
+        String[] lines = output.toString().split("\\r?\\n");
+        assertEquals(Arrays.asList("hello Ada Lovelace [a, b c]", "HELLO WORLD [X]", "Unknown command: unknown"),
+                Arrays.asList(lines).subList(0, 3));
+        assertEquals(4, lines.length);
+        assertEquals(4, shell.getLatencyTimer().getCount());
+        assertEquals(2, shell.getFailedCount());
+    }
+
+    @Test
+    public void testRunSurvivesFailingHandler() throws Exception {
+        StringWriter output = new StringWriter();
+        Shell shell = new Shell(new PrintWriter(output, true));
+        Options options = new Options();
+        options.addOption("u", "upper", false, "upper case");
+
+        Option name = new Option("n", "name", false, "name");
+        name.setArgs(Option.UNLIMITED_VALUES);
+        options.addOption(name);
+
+        shell.register("greet", options, GREET);
+        shell.register("fail", new Options(), new CommandHandler() {
+            @Override
+            public void execute(CommandLine cmd, PrintWriter out) {
+                throw new IllegalStateException("broken");
+            }
+        });
+        shell.setPrompt("");
+
+        shell.run(new BufferedReader(new StringReader("fail\ngreet\n")));
+
+        String[] lines = output.toString().split("\\r?\\n");
+        assertEquals(Arrays.asList("Command failed: java.lang.IllegalStateException: broken", "hello world []"),
+                Arrays.asList(lines).subList(0, 2));
+        assertEquals(2, shell.getLatencyTimer().getCount());
+        assertEquals(1, shell.getFailedCount());
+    }
+
+    @Test
+    public void testStatsCommand() throws Exception {
+        StringWriter output = new StringWriter();
+        Shell shell = new Shell(new PrintWriter(output, true));
+        Options options = new Options();
+        options.addOption("u", "upper", false, "upper case");
+
+        Option name = new Option("n", "name", false, "name");
+        name.setArgs(Option.UNLIMITED_VALUES);
+        options.addOption(name);
+
+        shell.register("greet", options, GREET);
+
+        assertTrue(shell.execute("greet"));
+        assertTrue(shell.execute("stats"));
+        assertFalse(shell.execute("exit"));
+
+        assertTrue(output.toString().contains("failed=0, count=1, average="));
+    }
+}